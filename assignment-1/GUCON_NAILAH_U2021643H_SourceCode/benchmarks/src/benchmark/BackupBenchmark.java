@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// import main and structure classes needed
+import main.PolicyIteration;
+import main.ValueIteration;
+import structure.FlatMaze;
+
+/**
+ BackupBenchmark measures a single Bellman backup of one state: the ValueIteration update (max over the four
+ directions) and the PolicyIteration improvement step. Each operation backs up the next non-wall state of the maze
+ in column-major order, so the memory access pattern is the same as a solver sweep.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackupBenchmark {
+
+    @State(Scope.Thread)
+    public static class States {
+        public FlatMaze model;
+        // the non-wall states of the maze, and the position of the next one to back up
+        private int[] states;
+        private int next;
+
+        @Setup
+        public void compile(MazeState maze) {
+            model = maze.compile();
+            states = new int[model.getNumNonWallStates()];
+            int n = 0;
+            for (int state = 0; state < model.getNumStates(); state++) {
+                if (!model.isWall(state))
+                    states[n++] = state;
+            }
+        }
+
+        public int next() {
+            int state = states[next];
+            next = next + 1 < states.length ? next + 1 : 0;
+            return state;
+        }
+    }
+
+    @Benchmark
+    public double valueIterationBackup(States states) {
+        return ValueIteration.calculateUtility(states.model, states.next());
+    }
+
+    @Benchmark
+    public boolean policyImprovementBackup(States states) {
+        return PolicyIteration.policyImprovement(states.model, states.next());
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ BenchmarkRunner runs the benchmarks in two passes, and must be run from the source code directory so that the
+ maze files in mazeEnvironments can be found:
+ (1) every benchmark matching the first argument (all of them by default) in throughput mode (ops/s), with the
+     GC profiler reporting the allocation rate (gc.alloc.rate and gc.alloc.rate.norm, bytes per operation);
+ (2) all of SolverBenchmark in AverageTime mode, which is the time to convergence of each solver in milliseconds.
+ Results are also written to outputFiles/benchmarks-throughput.json and outputFiles/benchmarks-convergence.json, so
+ that later runs can be compared against them as a baseline (e.g. with https://jmh.morethan.io).
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmark\\..*";
+
+        Options throughput = new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("outputFiles/benchmarks-throughput.json")
+                .build();
+        new Runner(throughput).run();
+
+        Options convergence = new OptionsBuilder()
+                .include(SolverBenchmark.class.getName() + ".*")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result("outputFiles/benchmarks-convergence.json")
+                .build();
+        new Runner(convergence).run();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// import main and structure classes needed
+import main.BellmanKernel;
+import structure.FlatMaze;
+
+/**
+ KernelBenchmark compares the scalar and vector BellmanKernels on one value iteration sweep and one policy
+ improvement step over the whole maze. The maze is not reset between operations, so after the first few sweeps the
+ utilities are close to converged, as in the later iterations of a solver. The fork is started with the
+ jdk.incubator.vector module, which the vector kernel needs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class KernelBenchmark {
+
+    @State(Scope.Thread)
+    public static class Kernel {
+        @Param({ "scalar", "vector" })
+        public String kernelName;
+
+        public BellmanKernel kernel;
+        public FlatMaze model;
+
+        @Setup
+        public void compile(MazeState maze) {
+            kernel = BellmanKernel.create(kernelName);
+            model = maze.compile();
+        }
+    }
+
+    @Benchmark
+    public double sweep(Kernel kernel) {
+        return kernel.kernel.sweep(kernel.model);
+    }
+
+    @Benchmark
+    public boolean improvePolicy(Kernel kernel) {
+        return kernel.kernel.improvePolicy(kernel.model);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// import structure classes needed
+import structure.Cell;
+import structure.Coordinates;
+import structure.FlatMaze;
+import structure.Maze;
+import structure.MazeFile;
+
+/**
+ MazeBenchmark measures the maze data structures the solvers are built on: looking up the neighbours of a cell
+ (allocating a new array, or filling the caller's array) and loading a maze file, into a Maze with
+ Maze.importMapFromFile or straight into a FlatMaze with MazeFile.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cells {
+        public Maze maze;
+        public Cell[] neighbours = new Cell[FlatMaze.OUTCOMES];
+        // every cell of the maze, and the position and direction of the next lookup
+        private Cell[] cells;
+        private int next, direction;
+
+        @Setup
+        public void collect(MazeState maze) {
+            this.maze = maze.maze;
+            cells = new Cell[this.maze.getNumCol() * this.maze.getNumRow()];
+            for (int c = 0; c < this.maze.getNumCol(); c++) {
+                for (int r = 0; r < this.maze.getNumRow(); r++) {
+                    cells[c * this.maze.getNumRow() + r] = this.maze.getCell(new Coordinates(c, r));
+                }
+            }
+        }
+
+        public Cell next() {
+            Cell cell = cells[next];
+            next = next + 1 < cells.length ? next + 1 : 0;
+            direction = (direction + 1) % Coordinates.ALL_DIRECTIONS;
+            return cell;
+        }
+    }
+
+    // the shipped maze files
+    @State(Scope.Benchmark)
+    public static class MazeFileName {
+        @Param({
+                "maze.txt",
+                "complicated-maze-6x6-1.txt",
+                "complicated-maze-12x12-1.txt",
+                "complicated-maze-24x24-1.txt",
+                "complicated-maze-48x48-1.txt"
+        })
+        public String fileName;
+    }
+
+    @Benchmark
+    public Cell[] getNeighboursOfCell(Cells cells) {
+        Cell cell = cells.next();
+        return cells.maze.getNeighboursOfCell(cell, cells.direction);
+    }
+
+    @Benchmark
+    public Cell[] getNeighboursOfCellInto(Cells cells) {
+        Cell cell = cells.next();
+        return cells.maze.getNeighboursOfCell(cell, cells.direction, cells.neighbours);
+    }
+
+    @Benchmark
+    public Maze importMapFromFile(MazeFileName file) {
+        return new Maze(file.fileName);
+    }
+
+    @Benchmark
+    public FlatMaze readMazeFile(MazeFileName file) {
+        return MazeFile.read(file.fileName).toFlatMaze();
+    }
+}
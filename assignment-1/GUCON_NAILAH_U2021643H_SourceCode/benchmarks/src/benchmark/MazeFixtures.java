@@ -0,0 +1,34 @@
+package benchmark;
+
+// import structure classes needed
+import structure.Maze;
+import structure.MazeGenerator;
+import structure.MdpConfig;
+
+/**
+ MazeFixtures provides the mazes the benchmarks run on: either one of the shipped files in mazeEnvironments
+ (e.g. "complicated-maze-48x48-1.txt"), or a generated maze named "generated-COLSxROWS" (e.g. "generated-96x96").
+ Generated mazes are made by MazeGenerator (every cell uniformly green, brown, a wall or white, as
+ random-maze-generator.ipynb does) from a fixed seed, so that every run and every fork benchmarks exactly the same
+ maze.
+ */
+public class MazeFixtures {
+    private final static String GENERATED = "generated-";
+    private final static long SEED = 4046;
+
+    /**
+     load(String name): loads the named maze file from mazeEnvironments (so the benchmarks have to be run from the
+     source code directory), or generates it if the name is "generated-COLSxROWS".
+     */
+    public static Maze load(String name) {
+        if (!name.startsWith(GENERATED))
+            return new Maze(name);
+
+        String[] size = name.substring(GENERATED.length()).split("x");
+        return generate(Integer.parseInt(size[0]), Integer.parseInt(size[1]), SEED);
+    }
+
+    public static Maze generate(int numCol, int numRow, long seed) {
+        return new MazeGenerator(numCol, numRow, seed).toMaze(MdpConfig.DEFAULT);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// import structure classes needed
+import structure.FlatMaze;
+import structure.Maze;
+
+/**
+ MazeState holds the maze a benchmark runs on, loaded once per trial. Every benchmark taking a MazeState is run
+ for each of the mazes below, from the shipped 6x6 maze to generated mazes larger than the shipped 48x48 ones
+ (see MazeFixtures).
+ */
+@State(Scope.Benchmark)
+public class MazeState {
+    @Param({
+            "maze.txt",
+            "complicated-maze-6x6-1.txt",
+            "complicated-maze-12x12-1.txt",
+            "complicated-maze-24x24-1.txt",
+            "complicated-maze-48x48-1.txt",
+            "generated-96x96",
+            "generated-192x192"
+    })
+    public String mazeName;
+
+    public Maze maze;
+
+    @Setup
+    public void load() {
+        maze = MazeFixtures.load(mazeName);
+    }
+
+    // compiles a fresh copy of the maze, with the utilities and policy it was loaded with
+    public FlatMaze compile() {
+        return new FlatMaze(maze);
+    }
+}
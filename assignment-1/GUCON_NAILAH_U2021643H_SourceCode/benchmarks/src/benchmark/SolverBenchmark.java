@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// import main and structure classes needed
+import main.PolicyIteration;
+import main.SolverResult;
+import main.ValueIteration;
+import structure.FlatMaze;
+
+/**
+ SolverBenchmark runs ValueIteration and PolicyIteration end-to-end, from the maze as it was loaded until the
+ solver converges, without printing or writing output files. Each invocation solves a freshly compiled FlatMaze,
+ so every operation does the full amount of work; the compilation itself is not measured.
+ By default the result is solves per second; BenchmarkRunner also runs these benchmarks in AverageTime mode to
+ report the time to convergence in milliseconds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @State(Scope.Thread)
+    public static class Model {
+        public FlatMaze model;
+
+        @Setup(Level.Invocation)
+        public void compile(MazeState maze) {
+            model = maze.compile();
+        }
+    }
+
+    @Benchmark
+    public SolverResult valueIteration(Model model) {
+        return ValueIteration.solve(model.model);
+    }
+
+    @Benchmark
+    public SolverResult policyIteration(Model model) {
+        return PolicyIteration.solve(model.model, PolicyIteration.Evaluation.ITERATIVE);
+    }
+
+    @Benchmark
+    public SolverResult policyIterationExact(Model model) {
+        return PolicyIteration.solve(model.model, PolicyIteration.Evaluation.EXACT);
+    }
+}
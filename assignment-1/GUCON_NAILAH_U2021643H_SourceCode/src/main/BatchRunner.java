@@ -0,0 +1,222 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import structure.FlatMaze;
+import structure.MazeFile;
+import structure.MdpConfig;
+
+/**
+ BatchRunner solves many mazes in one JVM, one maze per task on a fixed-size thread pool, and prints a summary table
+ of the iterations, backups, wall time and final utility range of every maze and algorithm.
+ Each argument is a maze file, a directory (every .txt file in it) or a glob such as "complicated-maze-*.txt";
+ relative globs without a directory are matched in mazeEnvironments. With no argument, every maze in mazeEnvironments
+ is solved. Options (see SolverOptions):
+    --algorithms=vi,pi,...    the algorithms to run on every maze: vi, pi, pi-exact and mpi (default vi,pi)
+    --threads=N               the number of mazes solved at the same time (default: the number of processors)
+    --cache[=directory]       reuse solutions from a SolutionCache (default directory "cache"); a maze solved
+                              before is not solved again, and a near-identical one is solved from a warm start
+    --cache-size=MB           the largest size of the cache (default 256 MB)
+    --discount=F, ...         change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+ e.g. --algorithms=vi,pi,mpi --cache complicated-maze-*.txt
+ */
+public class BatchRunner {
+    private final static String MAZE_DIRECTORY = "mazeEnvironments";
+    private final static String ROW_FORMAT = "%-34s %-9s %-36s %10s %14s %12s %10s %10s %6s\n";
+
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        String[] algorithms = options.get("algorithms", "vi,pi").split(",");
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        for (String algorithm : algorithms) {
+            // fails before solving anything if an algorithm is misspelt
+            algorithmName(algorithm);
+        }
+
+        List<String> mazes = new ArrayList<String>();
+        for (String target : options.getFileNames(MAZE_DIRECTORY)) {
+            mazes.addAll(expand(target));
+        }
+        if (mazes.isEmpty())
+            throw new IllegalArgumentException("No maze files found.");
+
+        String cacheDirectory = options.get("cache", null);
+        SolutionCache cache = cacheDirectory == null ? null
+                : new SolutionCache(Paths.get(cacheDirectory.equals("true") ? "cache" : cacheDirectory),
+                        options.getInt("cache-size", 256) * 1024L * 1024L);
+
+        MdpConfig config = options.getConfig();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<List<String[]>>> rows = new ArrayList<Future<List<String[]>>>();
+        try {
+            for (String maze : mazes) {
+                rows.add(executor.submit(() -> solve(maze, algorithms, config, cache)));
+            }
+
+            System.out.printf(ROW_FORMAT, "Maze", "Size", "Algorithm", "Iterations", "Backups", "Time (ms)",
+                    "Min U", "Max U", "Cache");
+            for (int i = 0; i < mazes.size(); i++) {
+                try {
+                    for (String[] row : rows.get(i).get()) {
+                        System.out.printf(ROW_FORMAT, (Object[]) row);
+                    }
+                } catch (ExecutionException e) {
+                    // one maze that cannot be loaded or solved does not stop the others
+                    System.out.printf("%-34s failed: %s\n", SolverOptions.mazeName(mazes.get(i)), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        System.out.printf("\n%d mazes, %d threads, total wall time: %.3f ms\n", mazes.size(), threads,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     expand(String target): the maze files named by a command line argument, which is a directory, a glob or a file.
+     */
+    static List<String> expand(String target) {
+        List<String> mazes = new ArrayList<String>();
+        String base = new File("").getAbsolutePath();
+        Path path = Paths.get(base).resolve(target);
+
+        try {
+            if (Files.isDirectory(path)) {
+                addMatching(path, "*.txt", mazes);
+            } else if (target.matches(".*[*?\\[{].*")) {
+                Path directory = Paths.get(target).getParent();
+                directory = directory != null ? Paths.get(base).resolve(directory) : Paths.get(base, MAZE_DIRECTORY);
+                addMatching(directory, Paths.get(target).getFileName().toString(), mazes);
+            } else {
+                mazes.add(target);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return mazes;
+    }
+
+    // adds every regular file in the directory matching the glob, in name order
+    private static void addMatching(Path directory, String glob, List<String> mazes) throws IOException {
+        List<String> matching = new ArrayList<String>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file))
+                    matching.add(file.toString());
+            }
+        }
+        matching.sort(null);
+        mazes.addAll(matching);
+    }
+
+    /**
+     solve(String fileName, String[] algorithms, MdpConfig config, SolutionCache cache): loads the maze once and solves
+     a fresh copy of it for the config with every algorithm, returning one row of the summary table per algorithm. With a cache, solutions found in
+     it are used as they are (HIT) or as a warm start (WARM), and new solutions are stored in it.
+     */
+    private static List<String[]> solve(String fileName, String[] algorithms, MdpConfig config, SolutionCache cache) {
+        MazeFile file = MazeFile.read(fileName);
+        List<String[]> rows = new ArrayList<String[]>();
+
+        for (String algorithm : algorithms) {
+            FlatMaze model = file.toFlatMaze(config);
+            String name = algorithmName(algorithm);
+            SolverResult result;
+            String cacheResult = "-";
+
+            long start = System.nanoTime();
+            SolutionCache.Lookup lookup = cache == null ? SolutionCache.Lookup.MISS : cache.lookup(model, name);
+            if (lookup == SolutionCache.Lookup.HIT) {
+                result = new SolverResult(title(name), 0, 0, System.nanoTime() - start);
+            } else {
+                result = solve(name, model);
+                if (cache != null)
+                    cache.store(model, name);
+            }
+            if (cache != null)
+                cacheResult = lookup.toString().toLowerCase();
+
+            // range of the final utilities of the non-wall states
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int state = 0; state < model.getNumStates(); state++) {
+                if (!model.isWall(state)) {
+                    min = Math.min(min, model.getUtilities()[state]);
+                    max = Math.max(max, model.getUtilities()[state]);
+                }
+            }
+
+            rows.add(new String[] {
+                    SolverOptions.mazeName(fileName),
+                    file.getNumCol() + "x" + file.getNumRow(),
+                    result.getAlgorithm(),
+                    Integer.toString(result.getIterations()),
+                    Long.toString(result.getBackups()),
+                    String.format("%.3f", result.getWallTimeNanos() / 1e6),
+                    String.format("%.3f", min),
+                    String.format("%.3f", max),
+                    cacheResult
+            });
+        }
+
+        return rows;
+    }
+
+    // solves the model with the algorithm (vi, pi, pi-exact or mpi)
+    static SolverResult solve(String algorithm, FlatMaze model) {
+        switch (algorithmName(algorithm)) {
+            case "vi":
+                return ValueIteration.solve(model);
+            case "pi":
+                return PolicyIteration.solve(model, PolicyIteration.Evaluation.ITERATIVE);
+            case "pi-exact":
+                return PolicyIteration.solve(model, PolicyIteration.Evaluation.EXACT);
+            default:
+                return ModifiedPolicyIteration.solve(model, false);
+        }
+    }
+
+    // the name the solver gives itself in its SolverResult
+    private static String title(String algorithm) {
+        switch (algorithm) {
+            case "vi":
+                return "Value Iteration";
+            case "pi":
+                return "Policy Iteration (" + PolicyIteration.Evaluation.ITERATIVE + ")";
+            case "pi-exact":
+                return "Policy Iteration (" + PolicyIteration.Evaluation.EXACT + ")";
+            default:
+                return "Modified Policy Iteration";
+        }
+    }
+
+    // checks that the algorithm is one BatchRunner can run, and returns its name in lower case
+    static String algorithmName(String algorithm) {
+        String name = algorithm.trim().toLowerCase();
+        switch (name) {
+            case "vi":
+            case "pi":
+            case "pi-exact":
+            case "mpi":
+                return name;
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package main;
+
+import structure.FlatMaze;
+
+/**
+ BellmanKernel is the inner loop of the solvers: a value iteration sweep and a policy improvement step over every
+ state of a FlatMaze.
+    scalar   ScalarBellmanKernel backs up one state at a time, in column-major order (the original implementation)
+    vector   VectorBellmanKernel backs up a block of consecutive states at a time with the Vector API, loading the
+             utilities of their neighbours as contiguous vectors, masked where FlatMaze.getSuccessorsByOutcome bounces
+             back, and taking the lane-wise maximum over the four directions. It is in the separate "vector" module,
+             as it needs the incubating jdk.incubator.vector module (javac and java --add-modules jdk.incubator.vector).
+ The kernel the solvers use, SELECTED, is chosen once at startup with the system property bellman.kernel: "scalar"
+ (the default) or "vector". The vector kernel is only used when asked for, so the utilities and traces of a run never
+ depend on the JVM flags. It is not a speedup of the solvers: KernelBenchmark shows its policy improvement step at
+ about twice the throughput of the scalar one but its sweep within the noise of the scalar sweep, and the wall time
+ of ValueIteration and PolicyIteration (whose evaluation sweeps are scalar) on the 48x48 and 200x200 mazes is the
+ same with either kernel.
+ The vector kernel finds exactly the same policy improvements. Its value iteration sweep updates the states of a
+ block from the utilities before the block (Jacobi style within a block, Gauss-Seidel between blocks), so it stops
+ at the same threshold but its utilities can differ from the scalar sweep's by up to the convergence error.
+ */
+public interface BellmanKernel {
+    BellmanKernel SELECTED = create(System.getProperty("bellman.kernel", "scalar"));
+
+    String getName();
+
+    /**
+     sweep(FlatMaze model): updates the utility and action of every non-wall state once with the Bellman equation,
+     in place, and returns the maximum change in utility over all states.
+     */
+    double sweep(FlatMaze model);
+
+    /**
+     improvePolicy(FlatMaze model): performs policy improvement for every non-wall state, and returns true if the
+     action of any state changed.
+     */
+    boolean improvePolicy(FlatMaze model);
+
+    /**
+     create(String name): the kernel with the given name, "scalar" or "vector". Throws an IllegalStateException if
+     the vector kernel is not on the class path or the JVM was started without the jdk.incubator.vector module.
+     */
+    static BellmanKernel create(String name) {
+        switch (name) {
+            case "scalar":
+                return new ScalarBellmanKernel();
+            case "vector":
+                try {
+                    // loaded by name, so that the solvers compile and run without the vector module
+                    return (BellmanKernel) Class.forName("main.VectorBellmanKernel").getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    throw new IllegalStateException("The vector kernel needs the vector module on the class path and "
+                            + "--add-modules jdk.incubator.vector.", e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown Bellman kernel: " + name);
+        }
+    }
+}
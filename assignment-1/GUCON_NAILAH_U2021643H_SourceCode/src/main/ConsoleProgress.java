@@ -0,0 +1,65 @@
+package main;
+
+import output.consoleOutput;
+import structure.FlatMaze;
+
+/**
+ ConsoleProgress shows a solver's progress on the console, for one of:
+    all     every iteration (the default)
+    N       the original maze, every Nth iteration and the final iteration
+    final   only the final iteration
+    none    nothing, for headless runs
+ Unless every iteration is shown, a summary with the number of iterations and the solver time is printed at the end,
+ so that runs without rendering can still be timed.
+ */
+public class ConsoleProgress implements ProgressListener {
+    private final static int FINAL_ONLY = 0;
+    private final static int NONE = -1;
+
+    private final int every;
+    private final consoleOutput console;
+
+    private ConsoleProgress(int every, FlatMaze model) {
+        this.every = every;
+        this.console = new consoleOutput(model);
+    }
+
+    /**
+     parse(String mode, FlatMaze model): creates the listener for "all", "final", "none" or a number N.
+     */
+    public static ConsoleProgress parse(String mode, FlatMaze model) {
+        switch (mode) {
+            case "all":
+                return new ConsoleProgress(1, model);
+            case "final":
+                return new ConsoleProgress(FINAL_ONLY, model);
+            case "none":
+                return new ConsoleProgress(NONE, model);
+            default:
+                int every = Integer.parseInt(mode);
+                if (every < 1)
+                    throw new IllegalArgumentException("Progress must be shown at least every 1 iteration.");
+                return new ConsoleProgress(every, model);
+        }
+    }
+
+    @Override
+    public boolean shows(int iteration, boolean last) {
+        if (every == NONE)
+            return false;
+        if (every == FINAL_ONLY)
+            return last;
+        return last || iteration % every == 0;
+    }
+
+    @Override
+    public void show(CharSequence report, FlatMaze model) {
+        console.print(report, model);
+    }
+
+    @Override
+    public void finished(int iterations, long solverNanos) {
+        if (every != 1)
+            System.out.printf("Converged after %d iterations, solver time: %.3f ms\n", iterations, solverNanos / 1e6);
+    }
+}
@@ -0,0 +1,112 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import structure.CellAttribute;
+import structure.CellEdit;
+import structure.FlatMaze;
+import structure.MazeFile;
+
+/**
+ Incremental re-solve after editing a maze:
+ When a few cells of a solved maze are edited, the solution only has to change around the edits. resolve() applies
+ the edits to the FlatMaze (keeping its utilities and policy) and starts prioritized sweeping from the states whose
+ Bellman residual the edits can have changed: the edited states, their neighbours (whose transitions change when a
+ wall is added or removed) and the predecessors of the edited states. Every other state still satisfies the
+ ValueIteration threshold, so backups spread out from the edits only as far as the change in utility matters.
+ PolicyIteration.solve and ModifiedPolicyIteration.solve can be warm-started the same way: after
+ FlatMaze.applyEdits they start from the previous policy and utilities of the model.
+ */
+public class IncrementalSolver {
+
+    /**
+     main(String[] args): solves every maze file given as an argument (or "maze.txt") with ValueIteration, then applies
+     batches of random edits, re-solving incrementally after each batch, and compares the backups and time with
+     solving the edited maze from scratch. Options (see SolverOptions):
+        --edits=N      the number of cells changed in each batch (default 5)
+        --batches=N    the number of batches (default 10)
+        --seed=N       the seed of the random edits (default 4046)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        int editsPerBatch = options.getInt("edits", 5);
+        int batches = options.getInt("batches", 10);
+        Random random = new Random(options.getLong("seed", 4046));
+        CellAttribute[] attributes = CellAttribute.values();
+
+        for (String fileName : options.getFileNames()) {
+            FlatMaze model = MazeFile.read(fileName).toFlatMaze(options.getConfig());
+            SolverResult initial = ValueIteration.solve(model);
+            System.out.printf("%s (%dx%d): initial solve %d backups in %.3f ms\n", fileName, model.getNumCol(),
+                    model.getNumRow(), initial.getBackups(), initial.getWallTimeNanos() / 1e6);
+
+            long incrementalBackups = 0, incrementalNanos = 0, fullBackups = 0, fullNanos = 0;
+            double maxDifference = 0;
+            for (int batch = 0; batch < batches; batch++) {
+                List<CellEdit> edits = new ArrayList<CellEdit>();
+                for (int i = 0; i < editsPerBatch; i++) {
+                    edits.add(new CellEdit(random.nextInt(model.getNumCol()), random.nextInt(model.getNumRow()),
+                            attributes[random.nextInt(attributes.length)]));
+                }
+
+                long start = System.nanoTime();
+                incrementalBackups += resolve(model, edits);
+                incrementalNanos += System.nanoTime() - start;
+
+                // the same maze, solved from scratch
+                FlatMaze full = new FlatMaze(model.getNumCol(), model.getNumRow(), model.getCellTypes().clone(),
+                        model.getConfig());
+                SolverResult result = ValueIteration.solve(full);
+                fullBackups += result.getBackups();
+                fullNanos += result.getWallTimeNanos();
+
+                for (int state = 0; state < model.getNumStates(); state++) {
+                    maxDifference = Math.max(maxDifference,
+                            Math.abs(model.getUtilities()[state] - full.getUtilities()[state]));
+                }
+            }
+
+            System.out.printf("  %d batches of %d edits:\n", batches, editsPerBatch);
+            System.out.printf("  Incremental re-solve: %d backups in %.3f ms\n", incrementalBackups, incrementalNanos / 1e6);
+            System.out.printf("  Full re-solve:        %d backups in %.3f ms\n", fullBackups, fullNanos / 1e6);
+            System.out.printf("  Maximum difference in utility: %.6f\n", maxDifference);
+        }
+    }
+
+    /**
+     resolve(FlatMaze model, List<CellEdit> edits):
+     applies the edits to a solved model and re-converges it from its current utilities and policy, backing up only
+     the states reached by the residual-driven frontier. Returns the number of backups performed.
+     */
+    public static long resolve(FlatMaze model, List<CellEdit> edits) {
+        int[] affected = model.applyEdits(edits);
+
+        double[] priority = new double[model.getNumStates()];
+        PrioritizedSweeping.StateQueue queue = new PrioritizedSweeping.StateQueue(priority);
+        double threshold = ValueIteration.convergenceThreshold(model.getConfig());
+        double[] scratch = model.getUtilities().clone();
+        int[] predecessorOffsets = model.getPredecessorOffsets();
+        int[] predecessors = model.getPredecessors();
+
+        for (int state : affected) {
+            seed(model, state, queue, threshold, scratch);
+            for (int i = predecessorOffsets[state]; i < predecessorOffsets[state + 1]; i++) {
+                seed(model, predecessors[i], queue, threshold, scratch);
+            }
+        }
+
+        return PrioritizedSweeping.propagate(model, priority, queue, threshold, scratch);
+    }
+
+    // queues the state if it is not a wall and its residual is above the threshold (a state can be seeded twice, as an
+    // affected cell and as a predecessor of one, so it goes through StateQueue.update to keep the heap ordered)
+    private static void seed(FlatMaze model, int state, PrioritizedSweeping.StateQueue queue, double threshold,
+                             double[] scratch) {
+        if (model.isWall(state))
+            return;
+
+        queue.update(state, ValueIteration.calculateUtility(model, state, model.getUtilities(), scratch), threshold);
+    }
+}
@@ -0,0 +1,210 @@
+package main;
+
+import structure.FlatMaze;
+import structure.Maze;
+import structure.MdpConfig;
+
+/**
+ Modified Policy Iteration:
+ Policy iteration where the number of evaluation sweeps is chosen in every iteration from the observed residual,
+ instead of the fixed K of PolicyIteration.
+ Every iteration starts with an improvement sweep, which chooses the best action of every non-wall state and backs
+ up its utility with it, like a ValueIteration sweep, followed by evaluation sweeps of the new policy. Each evaluation
+ sweep applies the Bellman equation of the current policy to every non-wall state (as in PolicyIteration) and measures
+ the smallest and largest change in utility. Their difference is the span of the residual: when it is small, the
+ utilities of all states are moving by the same amount, so the next improvement step, which only compares utilities,
+ would not be affected by further sweeps.
+ (1) While the policy is still changing, evaluation stops once the span has been reduced by the factor REDUCTION
+     compared to the improvement sweep (or is below the ValueIteration threshold), after at least MIN_SWEEPS and at
+     most MAX_CHANGING_SWEEPS sweeps. This keeps iterations with a bad policy cheap.
+ (2) Once an improvement step leaves the policy unchanged, the policy is evaluated until the max-norm residual
+     (the largest change in utility) is below the ValueIteration threshold.
+ The algorithm stops when an improvement sweep leaves the policy unchanged and changes no utility by more than the
+ ValueIteration threshold, which is the stopping rule of ValueIteration, so the utilities are as accurate as its.
+ An improvement step only changes the action of a state if the new action is better by more than the threshold:
+ actions that are tied up to the accuracy of the utilities would otherwise keep replacing each other, and every
+ such change costs another round of evaluation.
+ With a discount factor close to 1 the residual of a fixed policy only shrinks by about the discount factor per
+ sweep, as in ValueIteration. Once the ratio of successive residuals is steady, the rest of the geometric series is
+ added to the utilities in one step: every state whose last two changes shrank by that ratio moves by its last change
+ times ratio / (1 - ratio). This is what makes modified policy iteration need fewer backups than ValueIteration.
+ States whose changes are not geometric yet are left alone, as extrapolating them can make the utilities diverge.
+ */
+public class ModifiedPolicyIteration {
+    // each evaluation continues until the span of the residual is this fraction of the span of the improvement sweep
+    private final static double REDUCTION = 0.1;
+    // lower bound on the number of evaluation sweeps in an iteration, enough to measure the ratio of the residuals
+    private final static int MIN_SWEEPS = 3;
+    // upper bound on the number of evaluation sweeps in an iteration whose improvement step changed the policy
+    private final static int MAX_CHANGING_SWEEPS = 20;
+    // upper bound on the number of evaluation sweeps in a single iteration
+    private final static int MAX_SWEEPS = 10000;
+    // the ratio of successive residuals is steady once it changes by less than this from one sweep to the next
+    private final static double STEADY_RATIO = 0.01;
+    // a state is extrapolated if its last change is ratio times the one before, up to this fraction of its last change
+    private final static double STEADY_CHANGE = 0.1;
+
+    /**
+     main(String[] args): solves every maze file given as an argument (or "maze.txt") with modified policy iteration,
+     printing the number of evaluation sweeps of every iteration, followed by a comparison of the iterations,
+     backups and wall time of ValueIteration, PolicyIteration (fixed K and exact evaluation) and
+     ModifiedPolicyIteration on the same maze, with a note if ModifiedPolicyIteration needed more backups than
+     ValueIteration. Options (see SolverOptions):
+        --discount=F, ...             change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+
+        for (String fileName : options.getFileNames()) {
+            Maze maze = new Maze(fileName, options.getConfig());
+            System.out.printf("%s (%dx%d):\n", fileName, maze.getNumCol(), maze.getNumRow());
+
+            SolverResult[] results = {
+                    solve(new FlatMaze(maze), true),
+                    ValueIteration.solve(new FlatMaze(maze)),
+                    PolicyIteration.solve(new FlatMaze(maze), PolicyIteration.Evaluation.ITERATIVE),
+                    PolicyIteration.solve(new FlatMaze(maze), PolicyIteration.Evaluation.EXACT)
+            };
+
+            System.out.println();
+            System.out.printf("  %-36s %10s %14s %12s\n", "Algorithm", "Iterations", "Backups", "Time (ms)");
+            for (SolverResult result : results) {
+                System.out.printf("  %-36s %10d %14d %12.3f\n", result.getAlgorithm(), result.getIterations(),
+                        result.getBackups(), result.getWallTimeNanos() / 1e6);
+            }
+            System.out.println();
+
+            if (results[0].getBackups() > results[1].getBackups()) {
+                System.out.printf("  Modified Policy Iteration needed more backups than Value Iteration on %s\n\n",
+                        fileName);
+            }
+        }
+    }
+
+    /**
+     solve(FlatMaze model, boolean verbose):
+     runs modified policy iteration on the model, and returns the number of iterations, the number of state updates
+     (improvement and evaluation sweeps, each updating every non-wall state once) and the wall time.
+     With verbose, the number of evaluation sweeps and the residual of every iteration are printed.
+     */
+    public static SolverResult solve(FlatMaze model, boolean verbose) {
+        long start = System.nanoTime();
+        double threshold = ValueIteration.convergenceThreshold(model.getConfig());
+        double[] changeRange = new double[2];
+        // the utilities before the last and the last but one evaluation sweeps, to extrapolate from
+        double[] previous = new double[model.getNumStates()];
+        double[] beforePrevious = new double[model.getNumStates()];
+        int iteration = 0;
+        long sweeps = 0;
+        boolean changeOrNot;
+        boolean converged;
+
+        do {
+            iteration++;
+
+            changeOrNot = improvementSweep(model, threshold, changeRange);
+            sweeps++;
+            double span = changeRange[1] - changeRange[0];
+            double maxNorm = Math.max(Math.abs(changeRange[0]), Math.abs(changeRange[1]));
+            converged = !changeOrNot && maxNorm <= threshold;
+
+            // evaluates the current policy until the span (while the policy is changing) or the max-norm
+            // (once it has stopped changing) of the residual is below the bound
+            int evaluationSweeps = 0;
+            if (!converged) {
+                double bound = changeOrNot ? Math.max(threshold, REDUCTION * span) : threshold;
+                int maxSweeps = changeOrNot ? MAX_CHANGING_SWEEPS : MAX_SWEEPS;
+                double ratio = 0;
+                while (evaluationSweeps < MIN_SWEEPS
+                        || (changeOrNot ? span : maxNorm) > bound && evaluationSweeps < maxSweeps) {
+                    double[] oldest = beforePrevious;
+                    beforePrevious = previous;
+                    previous = oldest;
+                    System.arraycopy(model.getUtilities(), 0, previous, 0, previous.length);
+                    PolicyIteration.evaluationSweep(model, changeRange);
+                    evaluationSweeps++;
+                    span = changeRange[1] - changeRange[0];
+                    double newMaxNorm = Math.max(Math.abs(changeRange[0]), Math.abs(changeRange[1]));
+                    double lastRatio = ratio;
+                    ratio = maxNorm > 0 ? newMaxNorm / maxNorm : 0;
+                    maxNorm = newMaxNorm;
+
+                    if (evaluationSweeps > 1 && ratio > 0 && ratio < 1 && Math.abs(ratio - lastRatio) < STEADY_RATIO) {
+                        extrapolate(model, previous, beforePrevious, ratio);
+                        // the next ratio is measured afresh
+                        ratio = 0;
+                    }
+                }
+                sweeps += evaluationSweeps;
+            }
+
+            if (verbose) {
+                System.out.printf("  Iteration %d: %d evaluation sweeps, span %.6f, max-norm %.6f, policy changed: %s\n",
+                        iteration, evaluationSweeps, span, maxNorm, changeOrNot);
+            }
+        } while (!converged);
+
+        long wallTime = System.nanoTime() - start;
+        if (verbose)
+            System.out.printf("  Modified Policy Iteration took %.3f ms\n", wallTime / 1e6);
+
+        return new SolverResult("Modified Policy Iteration", iteration, sweeps * model.getNumNonWallStates(), wallTime);
+    }
+
+    /**
+     improvementSweep(FlatMaze model, double tolerance, double[] changeRange):
+     performs policy improvement for every non-wall state, changing its action only if the new action is better by
+     more than tolerance, and updates its utility with the Bellman equation of its (new) action, in place. Stores the
+     smallest and largest change in utility in changeRange[0] and changeRange[1], and returns true if the action of
+     any state changed.
+     */
+    static boolean improvementSweep(FlatMaze model, double tolerance, double[] changeRange) {
+        double[] utilities = model.getUtilities();
+        double[] rewards = model.getRewards();
+        byte[] policy = model.getPolicy();
+        int[] successors = model.getSuccessors();
+        MdpConfig config = model.getConfig();
+        double minChange = Double.POSITIVE_INFINITY, maxChange = Double.NEGATIVE_INFINITY;
+        boolean changeOrNot = false;
+
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (model.isWall(state))
+                continue;
+
+            if (PolicyIteration.policyImprovement(model, state, tolerance))
+                changeOrNot = true;
+
+            int d = state * FlatMaze.SUCCESSORS_PER_STATE + policy[state] * FlatMaze.OUTCOMES;
+            double up = config.getProbabilityUp() * utilities[successors[d]];
+            double left = config.getProbabilityLeft() * utilities[successors[d + 1]];
+            double right = config.getProbabilityRight() * utilities[successors[d + 2]];
+
+            double newUtility = rewards[state] + config.getDiscountFactor() * (up + left + right);
+            double change = newUtility - utilities[state];
+            utilities[state] = newUtility;
+
+            minChange = Math.min(minChange, change);
+            maxChange = Math.max(maxChange, change);
+        }
+
+        // a maze without any non-wall state has nothing to change
+        changeRange[0] = model.getNumNonWallStates() > 0 ? minChange : 0;
+        changeRange[1] = model.getNumNonWallStates() > 0 ? maxChange : 0;
+        return changeOrNot;
+    }
+
+    // moves the utility of every non-wall state whose last two changes shrank by ratio further by the rest of the
+    // geometric series, its last change times ratio / (1 - ratio); the other states are left to the next sweeps
+    private static void extrapolate(FlatMaze model, double[] previous, double[] beforePrevious, double ratio) {
+        double[] utilities = model.getUtilities();
+        double factor = ratio / (1 - ratio);
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (model.isWall(state))
+                continue;
+            double change = utilities[state] - previous[state];
+            double lastChange = previous[state] - beforePrevious[state];
+            if (Math.abs(change - ratio * lastChange) <= STEADY_CHANGE * Math.abs(change))
+                utilities[state] += factor * change;
+        }
+    }
+}
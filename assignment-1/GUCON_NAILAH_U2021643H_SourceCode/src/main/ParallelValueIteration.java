@@ -0,0 +1,192 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import structure.FlatMaze;
+import structure.Maze;
+
+/**
+ Parallel Value Iteration:
+ Runs the same Bellman updates as ValueIteration, but splits every sweep over the maze into bands of whole grid
+ columns (states are stored column-major, so each band is a contiguous range of states) and updates the bands
+ in parallel on a ForkJoinPool. Two orderings are supported:
+ (1) JACOBI: synchronous sweeps. Every band reads the utilities of the previous sweep and writes the new utilities
+     into a second buffer, and the two buffers are swapped after each sweep.
+ (2) RED_BLACK: the cells are coloured like a chessboard by (col + row) % 2. All successors of a cell are itself or
+     one of its four direct neighbours, which always have the other colour, so all red cells can be updated in place
+     in parallel, followed by all black cells. This keeps the Gauss-Seidel-like convergence of the serial solver.
+ Each band records its own maximum change in utility in a separate slot, and the slots are only combined once the
+ sweep has finished, so the threads never contend on a shared maximum.
+ The algorithm stops with the same threshold as ValueIteration.
+ */
+public class ParallelValueIteration {
+    public enum Ordering { JACOBI, RED_BLACK }
+
+    // number of bands per worker thread, so that threads finishing early can pick up the remaining bands
+    private final static int BANDS_PER_THREAD = 4;
+    // partial maxima are stored this many doubles apart so that two threads never write to the same cache line
+    private final static int PADDING = 8;
+
+    /**
+     main(String[] args): solves every maze file given as an argument (or "maze.txt") with both the serial and the
+     parallel solver, and prints the number of iterations, the wall time and the largest difference in utility
+     between the two. Options (see SolverOptions):
+        --ordering=jacobi|red-black   the ordering of the parallel sweeps (default red-black)
+        --discount=F, ...             change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        Ordering ordering = ordering(options.get("ordering", "red-black"));
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        for (String fileName : options.getFileNames()) {
+            Maze maze = new Maze(fileName, options.getConfig());
+            FlatMaze serial = new FlatMaze(maze);
+            FlatMaze parallel = new FlatMaze(maze);
+
+            SolverResult serialResult = ValueIteration.solve(serial);
+
+            long start = System.nanoTime();
+            int parallelIterations = runParallelValueIteration(parallel, ordering, pool);
+            long parallelTime = System.nanoTime() - start;
+
+            // largest difference in utility between the serial and the parallel results
+            double maxDifference = 0;
+            for (int state = 0; state < serial.getNumStates(); state++) {
+                maxDifference = Math.max(maxDifference,
+                        Math.abs(serial.getUtilities()[state] - parallel.getUtilities()[state]));
+            }
+
+            System.out.printf("%s (%dx%d), %s on %d threads:\n", fileName, maze.getNumCol(), maze.getNumRow(),
+                    ordering, pool.getParallelism());
+            System.out.printf("  Serial:   %d iterations in %.3f ms\n", serialResult.getIterations(),
+                    serialResult.getWallTimeNanos() / 1e6);
+            System.out.printf("  Parallel: %d iterations in %.3f ms\n", parallelIterations, parallelTime / 1e6);
+            System.out.printf("  Maximum difference in utility: %.6f\n", maxDifference);
+        }
+    }
+
+    // the Ordering named by the --ordering option
+    static Ordering ordering(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "jacobi":
+                return Ordering.JACOBI;
+            case "red-black":
+                return Ordering.RED_BLACK;
+            default:
+                throw new IllegalArgumentException("Unknown ordering: " + name);
+        }
+    }
+
+    /**
+     runParallelValueIteration(FlatMaze model, Ordering ordering, ForkJoinPool pool):
+     solves the model in place until the maximum change in utility is below the ValueIteration threshold,
+     and returns the number of iterations (sweeps) that were needed.
+     */
+    public static int runParallelValueIteration(FlatMaze model, Ordering ordering, ForkJoinPool pool) {
+        double threshold = ValueIteration.convergenceThreshold(model.getConfig());
+        int numBands = Math.min(model.getNumCol(), pool.getParallelism() * BANDS_PER_THREAD);
+        double[] partialMax = new double[numBands * PADDING];
+
+        // second buffer for synchronous sweeps; walls are never updated, so they start with their final utilities
+        double[] from = model.getUtilities();
+        double[] to = ordering == Ordering.JACOBI ? from.clone() : from;
+
+        int iteration = 0;
+        double maxChangeInUtility;
+        do {
+            if (ordering == Ordering.JACOBI) {
+                pool.invoke(new BandSweep(model, from, to, -1, partialMax, 0, numBands, numBands));
+                // the utilities just written become the input of the next sweep
+                double[] swap = from;
+                from = to;
+                to = swap;
+            } else {
+                // red cells first, then black cells, each phase in place
+                pool.invoke(new BandSweep(model, from, from, 0, partialMax, 0, numBands, numBands));
+                double redMax = reduce(partialMax, numBands);
+                pool.invoke(new BandSweep(model, from, from, 1, partialMax, 0, numBands, numBands));
+                partialMax[0] = Math.max(partialMax[0], redMax);
+            }
+
+            maxChangeInUtility = reduce(partialMax, numBands);
+            iteration++;
+        } while (maxChangeInUtility > threshold);
+
+        // after an odd number of Jacobi sweeps the latest utilities are in the second buffer
+        if (from != model.getUtilities())
+            System.arraycopy(from, 0, model.getUtilities(), 0, from.length);
+
+        return iteration;
+    }
+
+    // combines the maximum change in utility recorded by every band
+    private static double reduce(double[] partialMax, int numBands) {
+        double max = 0;
+        for (int band = 0; band < numBands; band++) {
+            max = Math.max(max, partialMax[band * PADDING]);
+        }
+        return max;
+    }
+
+    /**
+     BandSweep: updates the bands [firstBand, lastBand) of the maze, splitting the range in half until a single band
+     remains. A band covers the columns [band * numCol / numBands, (band + 1) * numCol / numBands).
+     colour is -1 to update every cell, or 0 / 1 to only update the cells with (col + row) % 2 == colour.
+     */
+    private static class BandSweep extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final FlatMaze model;
+        private final double[] from, to;
+        private final int colour;
+        private final double[] partialMax;
+        private final int firstBand, lastBand, numBands;
+
+        BandSweep(FlatMaze model, double[] from, double[] to, int colour, double[] partialMax,
+                  int firstBand, int lastBand, int numBands) {
+            this.model = model;
+            this.from = from;
+            this.to = to;
+            this.colour = colour;
+            this.partialMax = partialMax;
+            this.firstBand = firstBand;
+            this.lastBand = lastBand;
+            this.numBands = numBands;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBand - firstBand > 1) {
+                int middle = (firstBand + lastBand) >>> 1;
+                invokeAll(new BandSweep(model, from, to, colour, partialMax, firstBand, middle, numBands),
+                        new BandSweep(model, from, to, colour, partialMax, middle, lastBand, numBands));
+                return;
+            }
+
+            int numCol = model.getNumCol();
+            int numRow = model.getNumRow();
+            int firstCol = (int) ((long) firstBand * numCol / numBands);
+            int lastCol = (int) ((long) (firstBand + 1) * numCol / numBands);
+            // every cell is visited when colour is -1, otherwise every second cell of each column
+            int step = colour < 0 ? 1 : 2;
+
+            double maxChangeInUtility = 0;
+            for (int c = firstCol; c < lastCol; c++) {
+                int firstRow = colour < 0 ? 0 : (colour + c) & 1;
+                for (int r = firstRow; r < numRow; r += step) {
+                    int state = c * numRow + r;
+                    if (model.isWall(state))
+                        continue;
+
+                    double changeInUtility = ValueIteration.calculateUtility(model, state, from, to);
+                    if (changeInUtility > maxChangeInUtility)
+                        maxChangeInUtility = changeInUtility;
+                }
+            }
+
+            partialMax[firstBand * PADDING] = maxChangeInUtility;
+        }
+    }
+}
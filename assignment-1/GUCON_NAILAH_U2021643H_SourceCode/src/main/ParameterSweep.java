@@ -0,0 +1,140 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import structure.CellAttribute;
+import structure.FlatMaze;
+import structure.MazeFile;
+import structure.MdpConfig;
+
+/**
+ ParameterSweep solves the same maze for every combination of a grid of MDP parameters, one configuration per task on
+ a fixed-size thread pool, and prints how the number of iterations, the utilities and the policy change with them.
+ The maze is loaded and its transition index built once; every configuration is solved on a FlatMaze.withConfig copy
+ that shares the transition index, so only the rewards, utilities and policy are allocated per configuration.
+ Options (see SolverOptions):
+    --discounts=F,F,...          the discount factors to try (default: that of the base config)
+    --white-rewards=F,F,...      the rewards of a white cell to try (default: that of the base config)
+    --probabilities-up=F,F,...   the probabilities of the intended direction to try; the rest is split evenly
+                                 between the two right angles (default: those of the base config)
+    --algorithm=vi               the algorithm to solve with: vi, pi, pi-exact or mpi (default vi)
+    --threads=N                  the number of configurations solved at the same time (default: the number of processors)
+ The base config is the default one, changed by any of the single-valued options of SolverOptions.getConfig.
+ e.g. --discounts=0.9,0.95,0.99 --white-rewards=-0.04,-0.1,-0.5 complicated-maze-48x48-1.txt
+ */
+public class ParameterSweep {
+    private final static String ROW_FORMAT = "%-9s %-9s %-9s %10s %14s %12s %10s %10s %8s\n";
+
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        String algorithm = BatchRunner.algorithmName(options.get("algorithm", "vi"));
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        List<MdpConfig> configs = grid(options);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            for (String fileName : options.getFileNames()) {
+                sweep(fileName, configs, algorithm, executor);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     grid(SolverOptions options): every combination of the discount factors, white rewards and probabilities given,
+     in the order of the options (the discount factor changing slowest).
+     */
+    static List<MdpConfig> grid(SolverOptions options) {
+        MdpConfig base = options.getConfig();
+        float[] discounts = options.getFloats("discounts");
+        float[] whiteRewards = options.getFloats("white-rewards");
+        float[] probabilitiesUp = options.getFloats("probabilities-up");
+        if (discounts == null)
+            discounts = new float[] { base.getDiscountFactor() };
+        if (whiteRewards == null)
+            whiteRewards = new float[] { base.getReward(CellAttribute.WHITE) };
+
+        List<MdpConfig> configs = new ArrayList<MdpConfig>();
+        for (float discount : discounts) {
+            for (float whiteReward : whiteRewards) {
+                MdpConfig config = base.withDiscountFactor(discount).withReward(CellAttribute.WHITE, whiteReward);
+                if (probabilitiesUp == null) {
+                    configs.add(config);
+                    continue;
+                }
+                for (float up : probabilitiesUp) {
+                    float side = (1 - up) / 2;
+                    configs.add(config.withProbabilities(up, side, side));
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     sweep(String fileName, List<MdpConfig> configs, String algorithm, ExecutorService executor): solves the maze for
+     every config on the executor and prints one row per config. The Changed column is the number of non-wall states
+     whose action differs from the solution for the first config.
+     */
+    private static void sweep(String fileName, List<MdpConfig> configs, String algorithm, ExecutorService executor)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        FlatMaze base = MazeFile.read(fileName).toFlatMaze(configs.get(0));
+
+        // the copies are made before any task starts, as withConfig marks the base's transition index as shared
+        List<FlatMaze> models = new ArrayList<FlatMaze>();
+        List<Future<SolverResult>> results = new ArrayList<Future<SolverResult>>();
+        for (MdpConfig config : configs) {
+            FlatMaze model = base.withConfig(config);
+            models.add(model);
+        }
+        for (FlatMaze model : models) {
+            results.add(executor.submit(() -> BatchRunner.solve(algorithm, model)));
+        }
+
+        System.out.printf("%s (%dx%d), %s:\n", fileName, base.getNumCol(), base.getNumRow(), algorithm);
+        System.out.printf(ROW_FORMAT, "Discount", "White", "P(up)", "Iterations", "Backups", "Time (ms)",
+                "Min U", "Max U", "Changed");
+        for (int i = 0; i < configs.size(); i++) {
+            MdpConfig config = configs.get(i);
+            FlatMaze model = models.get(i);
+            SolverResult result;
+            try {
+                result = results.get(i).get();
+            } catch (ExecutionException e) {
+                // one configuration that cannot be solved does not stop the others
+                System.out.printf("%-9s %-9s %-9s failed: %s\n", config.getDiscountFactor(),
+                        config.getReward(CellAttribute.WHITE), config.getProbabilityUp(), e.getCause());
+                continue;
+            }
+
+            // range of the final utilities, and the policy changes, over the non-wall states
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            int changed = 0;
+            for (int state = 0; state < model.getNumStates(); state++) {
+                if (model.isWall(state))
+                    continue;
+                min = Math.min(min, model.getUtilities()[state]);
+                max = Math.max(max, model.getUtilities()[state]);
+                if (model.getPolicy()[state] != models.get(0).getPolicy()[state])
+                    changed++;
+            }
+
+            System.out.printf(ROW_FORMAT, config.getDiscountFactor(), config.getReward(CellAttribute.WHITE),
+                    config.getProbabilityUp(), result.getIterations(), result.getBackups(),
+                    String.format("%.3f", result.getWallTimeNanos() / 1e6), String.format("%.3f", min),
+                    String.format("%.3f", max), changed);
+        }
+
+        System.out.printf("\n%d configurations sharing one %.1f MB transition index, total wall time: %.3f ms\n\n",
+                configs.size(), base.getSuccessors().length * 4 / 1e6, (System.nanoTime() - start) / 1e6);
+    }
+}
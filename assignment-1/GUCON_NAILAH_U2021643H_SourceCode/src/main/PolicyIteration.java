@@ -1,18 +1,42 @@
 package main;
 
+import java.util.Formatter;
+
 import structure.Maze;
 import structure.Coordinates;
-import structure.Const;
-import structure.CellAttribute;
-import structure.Cell;
-import output.createOutput;
+import structure.MdpConfig;
+import structure.FlatMaze;
+import output.traceOutput;
 public class PolicyIteration {
     private final static int K = 75;
 
+    // how the utilities of the current policy are computed in each iteration:
+    // ITERATIVE applies the Bellman equation of the policy K times, EXACT solves the policy's linear system
+    public enum Evaluation { ITERATIVE, EXACT }
+
+    /**
+     main(String[] args): solves every maze file given as an argument (e.g. "complicated-maze-48x48-4.txt"),
+     or "maze.txt" if none are given. The size of each maze is read from its file, so mazes of different sizes
+     can be solved one after another in the same run without recompiling.
+     Options (see SolverOptions):
+        --evaluation=exact         use exact policy evaluation (see SparsePolicyEvaluation)
+        --progress=final           only show the final iteration (all, final, none, or every Nth iteration)
+        --output=binary            write a binary trace instead of a CSV file (binary-float for floats)
+        --sample-every=N           only record every Nth iteration in the output file
+        --sample-states=c:r,...    only record the given cells in the output file
+        --discount=F, ...          change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
     public static void main(String[] args) {
-        /** CHANGE THIS to the complicated mazes txt files e.g. "complicated-maze-48x48-4.txt" */
-        Maze maze = new Maze("maze.txt");
-        runPolicyIteration(maze);
+        SolverOptions options = SolverOptions.parse(args);
+        Evaluation evaluation = Evaluation.valueOf(options.get("evaluation", "iterative").toUpperCase());
+        String[] fileNames = options.getFileNames();
+
+        for (String fileName : fileNames) {
+            Maze maze = new Maze(fileName, options.getConfig());
+            // when solving several mazes, name each output file after its maze so they do not overwrite each other
+            String outputName = fileNames.length > 1 ? "PolicyIteration_" + SolverOptions.mazeName(fileName) : "PolicyIteration";
+            runPolicyIteration(maze, outputName, evaluation, options);
+        }
     }
 
     /**
@@ -28,64 +52,69 @@ public class PolicyIteration {
      The algorithm terminates when the policy no longer changes after (2), indicating that
      it has converged to an optimal policy.
      */
-    private static void runPolicyIteration(Maze maze) {
+    private static void runPolicyIteration(Maze maze, String outputName, Evaluation evaluation, SolverOptions options) {
         // track whether any policy changes were made during current iteration
         boolean changeOrNot;
         // Initializes the iteration counter to 1
         int iteration = 1;
+        // compiles the maze into primitive arrays for evaluation and improvement
+        FlatMaze model = new FlatMaze(maze);
         // add the intermediate maze states during the algorithm execution to output
-        createOutput output = new createOutput("PolicyIteration", maze);
+        traceOutput output = options.createOutput(outputName, model);
+        // shows the progress of the algorithm on the console
+        ProgressListener progress = options.createProgress(model);
+        // the report of the current iteration, only built when the iteration is shown
+        StringBuilder report = new StringBuilder();
+        Formatter formatter = new Formatter(report);
+        // time spent evaluating and improving the policy, not counting the output
+        long solverNanos = 0;
 
         System.out.println("Running Policy Iteration...");
-        System.out.println();
-        System.out.println("Original Maze:");
-        maze.print();
-        output.add(maze);
+        if (progress.shows(0, false)) {
+            report.append("\nOriginal Maze:\n");
+            progress.show(report, model);
+        }
+        output.add(model);
 
         do {
-            System.out.println("======================================================================================");
-            System.out.printf("Iteration %d:\n", iteration);
-            changeOrNot = false;
-
-            // Calls the policyEvaluation with a fixed number of iterations K
-            policyEvaluation(maze, K);
+            long start = System.nanoTime();
+            int solverIterations = 0;
+            if (evaluation == Evaluation.EXACT) {
+                // Solves for the exact utilities of the current policy, warm-started from the previous utilities
+                solverIterations = SparsePolicyEvaluation.evaluate(model, true);
+            } else {
+                // Calls the policyEvaluation with a fixed number of iterations K
+                policyEvaluation(model, K);
+            }
 
-            // Loops over all cells in the maze and performs policy improvement for each non-wall cell
+            // Performs policy improvement for each non-wall state.
             // At the end of the loop (based on while condition), if changeOrNot is still true, the policy iteration loop continues.
             // If changeOrNot is false, the loop terminates and the final policy has been determined.
-            for (int c = 0; c < Const.NUM_COL; c++) {
-                for (int r = 0; r < Const.NUM_ROW; r++) {
-                    Cell currCell = maze.getCell(new Coordinates(c, r));
-
-                    if (currCell.getCellAttribute() == CellAttribute.WALL) {
-                        continue;
-                    }
-
-                    // evaluates the optimal action for the cell and updates the cell's action accordingly
-                    // If the policyImprovement method returns true, indicates that the optimal action for the cell has changed
-                    boolean changed = policyImprovement(currCell, maze);
-
-                    // If any policy changes were made during this iteration, sets changeOrNot to true
-                    if (changed) {
-                        changeOrNot = true;
-                    }
-                }
-            }
+            changeOrNot = improvePolicy(model);
+            solverNanos += System.nanoTime() - start;
 
-            System.out.println();
-            System.out.printf("Any policy changes (true/false)? : %s\n", changeOrNot);
-            System.out.println();
             // print out the maze for the current iteration
-            System.out.printf("Updated Maze for Iteration %d:\n", iteration);
-            maze.print();
-            output.add(maze);
-            if(changeOrNot == false){
-                System.out.println("Optimal policy has been obtained!");
+            if (progress.shows(iteration, !changeOrNot)) {
+                report.setLength(0);
+                report.append("======================================================================================\n");
+                formatter.format("Iteration %d:\n", iteration);
+                if (evaluation == Evaluation.EXACT)
+                    formatter.format("Exact policy evaluation: %d BiCGSTAB iterations\n", solverIterations);
+                report.append('\n');
+                formatter.format("Any policy changes (true/false)? : %s\n", changeOrNot);
+                report.append('\n');
+                formatter.format("Updated Maze for Iteration %d:\n", iteration);
+                progress.show(report, model);
             }
+            output.add(model);
             // increments the iteration counter
             iteration++;
         } while (changeOrNot); // runs until no policy changes were made during the previous iteration
 
+        System.out.println("Optimal policy has been obtained!");
+        progress.finished(iteration - 1, solverNanos);
+        // writes the final utilities and policy back into the maze
+        model.exportTo(maze);
         output.finalise();
     }
 
@@ -99,74 +128,144 @@ public class PolicyIteration {
         P(s, a, s') is the probability of transitioning from state s to state s' when taking action a
         sum(P(s, a, s') * U(s')) is the expected utility of the next state s' given the current state s and action a.
      */
-    private static void policyEvaluation(Maze maze, int k) {
+    static void policyEvaluation(FlatMaze model, int k) {
         // iterates k times over all states and updates the utility of each state based on the current policy
+        double[] changeRange = new double[2];
         for (int i = 0; i < k; i++) {
-            for (int column = 0; column < Const.NUM_COL; column++) {
-                for (int row = 0; row < Const.NUM_ROW; row++) {
-                    // get current reward & policy
-                    Cell curCell = maze.getCell(new Coordinates(column, row));
-
-                    // If the current state is a wall, utility is not updated
-                    if (curCell.getCellAttribute() == CellAttribute.WALL)
-                        continue;
-
-                    // For each non-wall state, the algorithm sums up the expected utilities of its
-                    // neighbours (UP, LEFT, RIGHT) based on the current policy
-                    Cell[] neighbours = maze.getNeighboursOfCell(curCell);
-                    double up = Const.PROBABILITY_UP * neighbours[0].getUtility();
-                    double left = Const.PROBABILITY_LEFT * neighbours[1].getUtility();
-                    double right = Const.PROBABILITY_RIGHT * neighbours[2].getUtility();
-
-                    // updates the utility of the current state using the Bellman equation.
-                    float reward = curCell.getCellAttribute().getReward();
-                    curCell.setUtility(reward + Const.DISCOUNT_FACTOR * (up + left + right));
-                }
-            }
+            evaluationSweep(model, changeRange);
         }
     }
 
+    /**
+     evaluationSweep(FlatMaze model, double[] changeRange):
+     updates the utility of every non-wall state once with the Bellman equation of the current policy, in place,
+     and stores the smallest and largest (signed) change in utility of any state in changeRange[0] and changeRange[1].
+     */
+    static void evaluationSweep(FlatMaze model, double[] changeRange) {
+        double[] utilities = model.getUtilities();
+        double[] rewards = model.getRewards();
+        byte[] policy = model.getPolicy();
+        int[] successors = model.getSuccessors();
+        MdpConfig config = model.getConfig();
+        double minChange = Double.POSITIVE_INFINITY, maxChange = Double.NEGATIVE_INFINITY;
+
+        for (int state = 0; state < model.getNumStates(); state++) {
+            // If the current state is a wall, utility is not updated
+            if (model.isWall(state))
+                continue;
+
+            // For each non-wall state, the algorithm sums up the expected utilities of its
+            // successors (UP, LEFT, RIGHT) based on the current policy
+            int d = state * FlatMaze.SUCCESSORS_PER_STATE + policy[state] * FlatMaze.OUTCOMES;
+            double up = config.getProbabilityUp() * utilities[successors[d]];
+            double left = config.getProbabilityLeft() * utilities[successors[d + 1]];
+            double right = config.getProbabilityRight() * utilities[successors[d + 2]];
+
+            // updates the utility of the current state using the Bellman equation.
+            double newUtility = rewards[state] + config.getDiscountFactor() * (up + left + right);
+            double change = newUtility - utilities[state];
+            utilities[state] = newUtility;
+
+            minChange = Math.min(minChange, change);
+            maxChange = Math.max(maxChange, change);
+        }
+
+        // a maze without any non-wall state has nothing to change
+        changeRange[0] = model.getNumNonWallStates() > 0 ? minChange : 0;
+        changeRange[1] = model.getNumNonWallStates() > 0 ? maxChange : 0;
+    }
+
+    /**
+     improvePolicy(FlatMaze model):
+     performs policy improvement for every non-wall state with the BellmanKernel selected at startup, and returns
+     true if the action of any state changed.
+     */
+    static boolean improvePolicy(FlatMaze model) {
+        return BellmanKernel.SELECTED.improvePolicy(model);
+    }
+
+    /**
+     solve(FlatMaze model, Evaluation evaluation):
+     runs policy iteration on the model without printing or writing any output, and returns the number of
+     iterations, the number of state updates (every evaluation sweep and improvement step updates each non-wall
+     state once; each BiCGSTAB iteration of exact evaluation counts as its two matrix-vector products) and the
+     wall time.
+     */
+    public static SolverResult solve(FlatMaze model, Evaluation evaluation) {
+        long start = System.nanoTime();
+        int iteration = 0;
+        long sweeps = 0;
+        boolean changeOrNot;
+
+        do {
+            iteration++;
+            if (evaluation == Evaluation.EXACT) {
+                sweeps += 2L * SparsePolicyEvaluation.evaluate(model, true);
+            } else {
+                policyEvaluation(model, K);
+                sweeps += K;
+            }
+
+            changeOrNot = improvePolicy(model);
+            sweeps++;
+        } while (changeOrNot);
+
+        return new SolverResult("Policy Iteration (" + evaluation + ")", iteration,
+                sweeps * model.getNumNonWallStates(), System.nanoTime() - start);
+    }
+
     /**
      The goal of policy improvement is to improve the policy until we reach an optimal policy that maximizes
      the expected total reward for the agent.
-     In this implementation, we update the policy of each non-wall cell in the maze based on the results of
+     In this implementation, we update the policy of each non-wall state in the maze based on the results of
      policy evaluation. This process continues until the policy is converged and no further changes are required.
      */
-    private static boolean policyImprovement(Cell curCell, Maze maze) {
-        // holds the maximum possible sub-utility for each of the directions (i.e. up, down, left, right)
-        double[] maxSubUtility = new double[Coordinates.ALL_DIRECTIONS];
+    public static boolean policyImprovement(FlatMaze model, int state) {
+        return policyImprovement(model, state, 0);
+    }
+
+    /**
+     policyImprovement(FlatMaze model, int state, double tolerance): policy improvement of one state, where the action
+     is only changed if the best direction's sub-utility exceeds that of the current policy by more than tolerance,
+     so that directions which are tied up to the accuracy of the utilities do not keep replacing each other.
+     */
+    public static boolean policyImprovement(FlatMaze model, int state, double tolerance) {
+        double[] utilities = model.getUtilities();
+        byte[] policy = model.getPolicy();
+        int[] successors = model.getSuccessors();
+        MdpConfig config = model.getConfig();
+        int base = state * FlatMaze.SUCCESSORS_PER_STATE;
 
-        // go through each direction and calculates the sub-utility for that direction based on the current policy
+        // go through each direction and calculates the sub-utility for that direction,
+        // keeping the direction with the highest sub-utility value
+        int maxSubUtilityDirection = 0;
+        double maxSubUtility = 0;
         for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
-            Cell[] neighbouringCells = maze.getNeighboursOfCell(curCell, direction);
-            double up = Const.PROBABILITY_UP * neighbouringCells[0].getUtility();
-            double left = Const.PROBABILITY_LEFT * neighbouringCells[1].getUtility();
-            double right = Const.PROBABILITY_RIGHT * neighbouringCells[2].getUtility();
+            int d = base + direction * FlatMaze.OUTCOMES;
+            double up = config.getProbabilityUp() * utilities[successors[d]];
+            double left = config.getProbabilityLeft() * utilities[successors[d + 1]];
+            double right = config.getProbabilityRight() * utilities[successors[d + 2]];
+            double subUtility = up + left + right;
 
-            maxSubUtility[direction] = up + left + right;
+            if (direction == 0 || subUtility > maxSubUtility) {
+                maxSubUtility = subUtility;
+                maxSubUtilityDirection = direction;
+            }
         }
 
-        // holds the neighbouring cells of curCell
-        Cell[] neighbours = maze.getNeighboursOfCell(curCell);
-        // sub-utility for the current policy is calculated based on the neighbouring cells and their utilities
-        double up = Const.PROBABILITY_UP * neighbours[0].getUtility();
-        double left = Const.PROBABILITY_LEFT * neighbours[1].getUtility();
-        double right = Const.PROBABILITY_RIGHT * neighbours[2].getUtility();
-
-        // holds the direction with the highest sub-utility value
-        int maxSubUtilityDirection = 0;
-        for (int m = 1; m < maxSubUtility.length; m++) {
-            if (maxSubUtility[m] > maxSubUtility[maxSubUtilityDirection])
-                maxSubUtilityDirection = m;
-        }
+        // sub-utility for the current policy is calculated based on the successor states and their utilities
+        int d = base + policy[state] * FlatMaze.OUTCOMES;
+        double up = config.getProbabilityUp() * utilities[successors[d]];
+        double left = config.getProbabilityLeft() * utilities[successors[d + 1]];
+        double right = config.getProbabilityRight() * utilities[successors[d + 2]];
 
         // holds the sub-utility value for the current policy
         double curSubUtility = up + left + right;
 
         // if the sub-utility value for the new policy is greater than the sub-utility value for the current policy
-        if (maxSubUtility[maxSubUtilityDirection] > curSubUtility) {
-            // the action for curCell is updated to the direction with the highest sub-utility
-            curCell.setAction(maxSubUtilityDirection);
+        if (maxSubUtility > curSubUtility + tolerance) {
+            // the action for the state is updated to the direction with the highest sub-utility
+            policy[state] = (byte) maxSubUtilityDirection;
             return true;
         } else {
             return false;
@@ -0,0 +1,226 @@
+package main;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import structure.FlatMaze;
+import structure.MdpConfig;
+
+/**
+ Policy Simulation (Monte Carlo rollouts):
+ Solves a maze, then runs the policy it found: an agent starts in a given cell and, for every step, takes the action
+ of the policy in its current cell and moves to the intended cell or to one of the two at right angles with the
+ probabilities of the MdpConfig (0.8 / 0.1 / 0.1 by default), bouncing back off walls and edges exactly as the
+ solvers assume (FlatMaze successor table). The return of an episode is the discounted sum of the rewards of the
+ cells it visits, starting with the start cell:
+    G = R(s0) + discount * R(s1) + discount^2 * R(s2) + ...
+ whose expected value is the utility of the start cell under the policy, so the mean return of many episodes
+ validates the utilities the solver computed. Episodes are cut off after a horizon at which the rest of the return
+ is smaller than TRUNCATION for any policy.
+ The episodes are played in parallel on a ForkJoinPool, in batches of BATCH episodes; every task splits its own
+ SplittableRandom off its parent's before forking, so the returns are the same whatever the number of threads.
+ */
+public class PolicySimulation {
+    // largest possible contribution of the steps after the horizon to the return
+    private final static double TRUNCATION = 1e-3;
+    // episodes played by one ForkJoin task without splitting it further
+    private final static int BATCH = 1024;
+
+    /**
+     main(String[] args): solves every maze file given as an argument (or "maze.txt") and runs episodes of its policy
+     from every start cell, printing the utility of the cell, the mean return with its 95% confidence interval, the
+     standard deviation and percentiles of the returns, followed by the number of steps simulated per second.
+     Options (see SolverOptions):
+        --algorithm=vi           the algorithm to solve with: vi, pi, pi-exact or mpi (default vi)
+        --start=c:r,...          the start cells (default: the first non-wall cell, column-major)
+        --episodes=N             the number of episodes from each start cell (default 1000000)
+        --seed=N                 the seed of the episodes (default 4046)
+        --threads=N              the parallelism of the ForkJoinPool (default: the number of processors)
+        --discount=F, ...        change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        String algorithm = BatchRunner.algorithmName(options.get("algorithm", "vi"));
+        int episodes = options.getInt("episodes", 1000000);
+        long seed = options.getLong("seed", 4046);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, options.getInt("threads",
+                Runtime.getRuntime().availableProcessors())));
+
+        try {
+            for (String fileName : options.getFileNames()) {
+                FlatMaze model = structure.MazeFile.read(fileName).toFlatMaze(options.getConfig());
+                SolverResult result = BatchRunner.solve(algorithm, model);
+                int horizon = horizon(model);
+                int[] starts = options.getStates("start", model.getNumRow());
+                if (starts == null)
+                    starts = new int[] { firstNonWall(model) };
+
+                System.out.printf("%s (%dx%d): %s in %d iterations, %d episodes of %d steps from each start cell\n",
+                        fileName, model.getNumCol(), model.getNumRow(), result.getAlgorithm(), result.getIterations(),
+                        episodes, horizon);
+                System.out.printf("  %-11s %10s %10s %10s %10s %10s %10s %10s %10s\n", "Start", "Utility", "Mean",
+                        "95% CI", "Std dev", "P5", "Median", "P95", "Error");
+
+                long start = System.nanoTime();
+                for (int state : starts) {
+                    double[] returns = simulate(model, state, episodes, horizon, seed, pool);
+                    printSummary(model, state, returns);
+                }
+                long nanos = System.nanoTime() - start;
+                long steps = (long) starts.length * episodes * horizon;
+                System.out.printf("  %d steps in %.3f ms, %.1f million steps/s\n\n", steps, nanos / 1e6,
+                        steps / (nanos / 1e3));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     simulate(FlatMaze model, int start, int episodes, int horizon, long seed, ForkJoinPool pool):
+     runs the given number of episodes of the model's current policy from the start state on the pool, and returns
+     the return of every episode, in the order of the episodes.
+     */
+    public static double[] simulate(FlatMaze model, int start, int episodes, int horizon, long seed, ForkJoinPool pool) {
+        if (model.isWall(start))
+            throw new IllegalArgumentException("The start state " + start + " is a wall.");
+
+        double[] returns = new double[episodes];
+        pool.invoke(new Episodes(new Rollout(model, horizon), start, returns, 0, episodes, new SplittableRandom(seed)));
+        return returns;
+    }
+
+    /**
+     horizon(FlatMaze model): the number of steps after which the rest of any return is at most TRUNCATION, i.e. the
+     smallest H with discount^H * max|R| / (1 - discount) <= TRUNCATION.
+     */
+    public static int horizon(FlatMaze model) {
+        double discount = model.getConfig().getDiscountFactor();
+        double maxReward = 0;
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (!model.isWall(state))
+                maxReward = Math.max(maxReward, Math.abs(model.getRewards()[state]));
+        }
+        if (maxReward == 0)
+            return 1;
+        return Math.max(1, (int) Math.ceil(Math.log(TRUNCATION * (1 - discount) / maxReward) / Math.log(discount)));
+    }
+
+    /**
+     Rollout holds the arrays and parameters of the model an episode is played on, so that the inner loop only
+     reads local arrays.
+     */
+    private static final class Rollout {
+        private final int[] successors;
+        private final byte[] policy;
+        private final double[] rewards;
+        private final double discount;
+        // probability of the intended direction, and of the intended direction or the right angle to the left
+        private final double probabilityUp, probabilityUpOrLeft;
+        private final int horizon;
+
+        private Rollout(FlatMaze model, int horizon) {
+            MdpConfig config = model.getConfig();
+            this.successors = model.getSuccessors();
+            this.policy = model.getPolicy();
+            this.rewards = model.getRewards();
+            this.discount = config.getDiscountFactor();
+            this.probabilityUp = config.getProbabilityUp();
+            this.probabilityUpOrLeft = (double) config.getProbabilityUp() + config.getProbabilityLeft();
+            this.horizon = horizon;
+        }
+
+        // plays one episode from the state and returns its discounted return
+        private double play(int state, SplittableRandom random) {
+            double total = 0, weight = 1;
+            for (int step = 0; step < horizon; step++) {
+                total += weight * rewards[state];
+                weight *= discount;
+
+                // the outcome of the action: intended direction, right angle left or right angle right
+                double u = random.nextDouble();
+                int outcome = u < probabilityUp ? 0 : u < probabilityUpOrLeft ? 1 : 2;
+                state = successors[state * FlatMaze.SUCCESSORS_PER_STATE + policy[state] * FlatMaze.OUTCOMES + outcome];
+            }
+            return total;
+        }
+    }
+
+    /**
+     Episodes plays the episodes numbered from to to - 1, writing their returns into returns.
+     */
+    private static final class Episodes extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final Rollout rollout;
+        private final int start;
+        private final double[] returns;
+        private final int from, to;
+        private final SplittableRandom random;
+
+        private Episodes(Rollout rollout, int start, double[] returns, int from, int to, SplittableRandom random) {
+            this.rollout = rollout;
+            this.start = start;
+            this.returns = returns;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                int middle = (from + to) >>> 1;
+                // the generator of the first half is split off before either half runs, so it is the same every time
+                invokeAll(new Episodes(rollout, start, returns, from, middle, random.split()),
+                        new Episodes(rollout, start, returns, middle, to, random));
+                return;
+            }
+
+            for (int episode = from; episode < to; episode++) {
+                returns[episode] = rollout.play(start, random);
+            }
+        }
+    }
+
+    // prints the utility of the start state and the distribution of the returns from it
+    private static void printSummary(FlatMaze model, int state, double[] returns) {
+        double mean = 0;
+        for (double value : returns) {
+            mean += value;
+        }
+        mean /= returns.length;
+        double variance = 0;
+        for (double value : returns) {
+            variance += (value - mean) * (value - mean);
+        }
+        double standardDeviation = Math.sqrt(variance / Math.max(1, returns.length - 1));
+        double confidence = 1.96 * standardDeviation / Math.sqrt(returns.length);
+
+        double[] sorted = returns.clone();
+        Arrays.sort(sorted);
+        double utility = model.getUtilities()[state];
+
+        System.out.printf("  %-11s %10.4f %10.4f %10.4f %10.4f %10.4f %10.4f %10.4f %10.4f\n",
+                "(" + state / model.getNumRow() + ", " + state % model.getNumRow() + ")", utility, mean, confidence,
+                standardDeviation, percentile(sorted, 0.05), percentile(sorted, 0.5), percentile(sorted, 0.95),
+                mean - utility);
+    }
+
+    // the value below which the given fraction of the sorted values lie (nearest rank)
+    private static double percentile(double[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    // the first state that is not a wall, in column-major order
+    private static int firstNonWall(FlatMaze model) {
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (!model.isWall(state))
+                return state;
+        }
+        throw new IllegalArgumentException("The maze has no cell that is not a wall.");
+    }
+}
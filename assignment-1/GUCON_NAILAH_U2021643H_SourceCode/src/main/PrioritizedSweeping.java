@@ -0,0 +1,234 @@
+package main;
+
+import java.util.Arrays;
+
+import structure.FlatMaze;
+import structure.Maze;
+
+/**
+ Prioritized Sweeping (asynchronous value iteration):
+ Instead of backing up every non-wall state on every sweep, the states are kept in a priority queue keyed by their
+ Bellman residual |(reward + discount_factor * max(sub-utilities)) - utility|, and the state with the largest
+ residual is always backed up next.
+ Backing up a state only changes the residuals of its predecessors (the states that can move into it), which are
+ found in the reverse transition index of the FlatMaze. After each backup, the residual of every predecessor is
+ recomputed, and a predecessor is only queued if its residual is above the ValueIteration threshold, so changes
+ too small to matter are not propagated through the maze.
+ The algorithm stops once the queue is empty, i.e. once every state's residual is below the same threshold that
+ ValueIteration stops at.
+ This saves backups, not time: on the 48x48 mazes it needs about two thirds of the backups of ValueIteration, but
+ every backup also recomputes the residuals of the state's predecessors and moves each of them in the heap, so its
+ wall time is 5 to 15 times that of ValueIteration's sequential sweeps. Raising the priority of a predecessor by an
+ upper bound on the change of its residual (discount_factor * transition probability * change in utility) instead of
+ recomputing it does not help: the heap updates remain and the looser priorities need more backups. It pays off when
+ only a few states have a residual above the threshold, as when re-solving after small edits (see IncrementalSolver).
+ */
+public class PrioritizedSweeping {
+
+    /**
+     main(String[] args): solves every maze file given as an argument (or "maze.txt") with both ValueIteration and
+     PrioritizedSweeping, and prints the number of backups each needed and the largest difference in utility.
+     Options (see SolverOptions):
+        --discount=F, ...             change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+
+        for (String fileName : options.getFileNames()) {
+            Maze maze = new Maze(fileName, options.getConfig());
+            FlatMaze sweeping = new FlatMaze(maze);
+            FlatMaze prioritized = new FlatMaze(maze);
+
+            int nonWallStates = sweeping.getNumNonWallStates();
+            SolverResult valueIteration = ValueIteration.solve(sweeping);
+
+            long start = System.nanoTime();
+            long backups = runPrioritizedSweeping(prioritized);
+            long prioritizedTime = System.nanoTime() - start;
+
+            double maxDifference = 0;
+            for (int state = 0; state < sweeping.getNumStates(); state++) {
+                maxDifference = Math.max(maxDifference,
+                        Math.abs(sweeping.getUtilities()[state] - prioritized.getUtilities()[state]));
+            }
+
+            System.out.printf("%s (%dx%d):\n", fileName, maze.getNumCol(), maze.getNumRow());
+            System.out.printf("  Value Iteration:      %d iterations, %d backups in %.3f ms\n",
+                    valueIteration.getIterations(), valueIteration.getBackups(), valueIteration.getWallTimeNanos() / 1e6);
+            System.out.printf("  Prioritized Sweeping: %.1f iterations, %d backups in %.3f ms\n",
+                    (double) backups / nonWallStates, backups, prioritizedTime / 1e6);
+            System.out.printf("  Maximum difference in utility: %.6f\n", maxDifference);
+        }
+    }
+
+    /**
+     runPrioritizedSweeping(FlatMaze model):
+     solves the model in place, starting from its current utilities, and returns the number of backups performed.
+     The residual of every non-wall state is computed once to fill the queue.
+     */
+    public static long runPrioritizedSweeping(FlatMaze model) {
+        double[] priority = new double[model.getNumStates()];
+        StateQueue queue = new StateQueue(priority);
+        double threshold = ValueIteration.convergenceThreshold(model.getConfig());
+        double[] scratch = model.getUtilities().clone();
+
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (model.isWall(state))
+                continue;
+
+            queue.update(state, residual(model, state, scratch), threshold);
+        }
+
+        return propagate(model, priority, queue, threshold, scratch);
+    }
+
+    /**
+     propagate(FlatMaze model, double[] priority, StateQueue queue, double threshold, double[] scratch):
+     repeatedly backs up the state with the largest residual and recomputes the residuals of its predecessors,
+     until no state has a residual above the threshold. Returns the number of backups performed.
+     */
+    static long propagate(FlatMaze model, double[] priority, StateQueue queue, double threshold, double[] scratch) {
+        int[] predecessorOffsets = model.getPredecessorOffsets();
+        int[] predecessors = model.getPredecessors();
+        long backups = 0;
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            ValueIteration.calculateUtility(model, state);
+            priority[state] = 0;
+            backups++;
+
+            // the new utility of the state changes the residual of every predecessor
+            // (including the state itself, if it can stay in place); a queued predecessor whose residual has dropped
+            // to the threshold is taken out of the queue, so the heap never holds a stale priority
+            for (int i = predecessorOffsets[state]; i < predecessorOffsets[state + 1]; i++) {
+                int predecessor = predecessors[i];
+                queue.update(predecessor, residual(model, predecessor, scratch), threshold);
+            }
+        }
+
+        return backups;
+    }
+
+    /**
+     residual(FlatMaze model, int state, double[] scratch):
+     the Bellman residual of the state. The backup is written into the scratch buffer instead of the utilities,
+     so the utilities are left untouched (the state's action is set to the greedy action, as in any backup).
+     */
+    private static double residual(FlatMaze model, int state, double[] scratch) {
+        return ValueIteration.calculateUtility(model, state, model.getUtilities(), scratch);
+    }
+
+    /**
+     StateQueue: a binary max-heap of states ordered by the shared priority array. position[state] is the index of
+     the state in the heap, or -1 if it is not queued. The priority of a queued state can change when one of its
+     successors is backed up, so pushing a queued state again moves it up or down to its new place in the heap.
+     The priority of a queued state must only be changed through update(), which always restores the heap order.
+     */
+    static class StateQueue {
+        private final double[] priority;
+        private final int[] heap;
+        private final int[] position;
+        private int size;
+
+        StateQueue(double[] priority) {
+            this.priority = priority;
+            this.heap = new int[priority.length];
+            this.position = new int[priority.length];
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        // adds the state to the queue, or moves it to its new place if its priority has changed while queued
+        void push(int state) {
+            if (position[state] < 0) {
+                heap[size] = state;
+                position[state] = size;
+                size++;
+            }
+            siftUp(position[state]);
+            siftDown(position[state]);
+        }
+
+        /**
+         update(int state, double newPriority, double threshold): sets the priority of the state, and queues it (or
+         moves it to its new place in the heap) if the priority is above the threshold, or takes it out of the queue
+         otherwise.
+         */
+        void update(int state, double newPriority, double threshold) {
+            priority[state] = newPriority;
+            if (newPriority > threshold)
+                push(state);
+            else
+                remove(state);
+        }
+
+        // takes the state out of the queue, if it is queued
+        void remove(int state) {
+            int i = position[state];
+            if (i < 0)
+                return;
+            position[state] = -1;
+            size--;
+
+            // the last state of the heap fills the gap, and moves up or down to its place
+            if (i < size) {
+                int last = heap[size];
+                heap[i] = last;
+                position[last] = i;
+                siftUp(i);
+                siftDown(position[last]);
+            }
+        }
+
+        // removes and returns the state with the largest priority
+        int poll() {
+            int top = heap[0];
+            position[top] = -1;
+            size--;
+
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int state = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (priority[heap[parent]] >= priority[state])
+                    break;
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = state;
+            position[state] = i;
+        }
+
+        private void siftDown(int i) {
+            int state = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && priority[heap[child + 1]] > priority[heap[child]])
+                    child++;
+                if (priority[heap[child]] <= priority[state])
+                    break;
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = state;
+            position[state] = i;
+        }
+    }
+}
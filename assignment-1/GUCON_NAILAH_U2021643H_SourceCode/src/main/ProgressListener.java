@@ -0,0 +1,27 @@
+package main;
+
+import structure.FlatMaze;
+
+/**
+ ProgressListener decides which iterations of a solver are shown, and shows them.
+ The solvers only build the report of an iteration when the listener shows it, so a listener that shows
+ nothing (or only the final iteration) takes all the rendering out of the solver loop.
+ */
+public interface ProgressListener {
+    /**
+     shows(int iteration, boolean last): whether the given iteration is shown, where iteration 0 is the original
+     maze and last is true for the iteration the solver converged in.
+     */
+    boolean shows(int iteration, boolean last);
+
+    /**
+     show(CharSequence report, FlatMaze model): shows the solver's report of an iteration, followed by the maze.
+     */
+    void show(CharSequence report, FlatMaze model);
+
+    /**
+     finished(int iterations, long solverNanos): called once the solver has converged, with the number of
+     iterations and the time spent in the solver itself, not counting showing its progress.
+     */
+    void finished(int iterations, long solverNanos);
+}
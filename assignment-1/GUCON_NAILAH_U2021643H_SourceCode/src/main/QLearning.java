@@ -0,0 +1,331 @@
+package main;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import structure.Coordinates;
+import structure.FlatMaze;
+import structure.Maze;
+import structure.MdpConfig;
+
+/**
+ Q-Learning and SARSA:
+ Model-free solvers that never read the transition probabilities: an agent moves through the maze, and only sees the
+ reward of the cell it is in and the cell its action takes it to. The Maze is used as a simulator through the
+ successor table of its FlatMaze, so every move goes to the intended cell or to one of the two at right angles with
+ the probabilities of the MdpConfig, bouncing back off walls and edges, exactly as the model-based solvers assume.
+ The agent learns the utility Q(s, a) of every action in every state, stored in a double[numStates * 4] indexed by
+ state * 4 + direction. After taking action a in state s and arriving in s', where it will take action a':
+    Q-learning:  Q(s, a) += alpha * (R(s) + discount * max over b of Q(s', b) - Q(s, a))
+    SARSA:       Q(s, a) += alpha * (R(s) + discount * Q(s', a') - Q(s, a))
+ Actions are epsilon-greedy: a random action with probability epsilon, the best action for the current Q otherwise.
+ The learning rate of a state-action pair is 1 / n^ALPHA_POWER after its nth update, and an agent restarts from a
+ random non-wall cell every episode-length steps, so that every cell keeps being visited.
+ Several agents (actors) can learn in parallel on a ForkJoinPool. They share the Q-table and update it without any
+ locking (Hogwild): two actors rarely update the same state-action pair at the same time, and a lost update only
+ costs one sample. With a single actor, the same seed always gives the same result.
+ Every CHECK_EVERY steps the policy that is greedy for Q is compared with that of ValueIteration; the number of
+ environment steps it took to match it in every state is the result, and steps per second the throughput.
+ */
+public class QLearning {
+    public enum Method { Q_LEARNING, SARSA }
+
+    // the learning rate of the nth update of a state-action pair is 1 / n^ALPHA_POWER
+    private final static double ALPHA_POWER = 0.6;
+    // actions whose utilities under the ValueIteration solution differ by less than this are equally good
+    private final static double TIE = 1e-6;
+    // 1 / n^ALPHA_POWER for n < 2^RATE_BITS, and 1 / 2^(k * ALPHA_POWER) to scale it for larger n (see learningRate)
+    private final static int RATE_BITS = 12;
+    private final static double[] RATES = new double[1 << RATE_BITS], RATE_SCALES = new double[33];
+    static {
+        for (int n = 1; n < RATES.length; n++) {
+            RATES[n] = Math.pow(n, -ALPHA_POWER);
+        }
+        for (int k = 0; k < RATE_SCALES.length; k++) {
+            RATE_SCALES[k] = Math.pow(2, -k * ALPHA_POWER);
+        }
+    }
+
+    /**
+     main(String[] args): learns the policy of every maze file given as an argument (or "maze.txt") and prints the
+     number of states in which the greedy policy matches that of ValueIteration every print-every checks, then the
+     number of steps it took to match it everywhere and the number of steps per second.
+     Options (see SolverOptions):
+        --method=sarsa           learn with SARSA instead of Q-learning
+        --epsilon=F              the probability of a random action (default 0.1)
+        --episode-length=N       the number of steps before an agent restarts from a random cell (default 1000)
+        --actors=N               the number of agents sharing the Q-table (default: the number of processors)
+        --check-every=N          the number of steps between comparisons with ValueIteration (default 100000)
+        --max-steps=N            give up after this many steps (default 2000000000)
+        --print-every=N          print every Nth comparison (default 10)
+        --seed=N                 the seed of the agents (default 4046)
+        --discount=F, ...        change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
+    public static void main(String[] args) {
+        SolverOptions options = SolverOptions.parse(args);
+        Method method = options.get("method", "q-learning").equalsIgnoreCase("sarsa") ? Method.SARSA : Method.Q_LEARNING;
+        double epsilon = Double.parseDouble(options.get("epsilon", "0.1"));
+        int episodeLength = options.getInt("episode-length", 1000);
+        int actors = Math.max(1, options.getInt("actors", Runtime.getRuntime().availableProcessors()));
+        int checkEvery = options.getInt("check-every", 100000);
+        long maxSteps = options.getLong("max-steps", 2000000000L);
+        int printEvery = options.getInt("print-every", 10);
+        long seed = options.getLong("seed", 4046);
+        ForkJoinPool pool = new ForkJoinPool(actors);
+
+        try {
+            for (String fileName : options.getFileNames()) {
+                FlatMaze model = new FlatMaze(new Maze(fileName, options.getConfig()));
+                QLearning learner = new QLearning(model, method, epsilon, episodeLength, actors, seed);
+
+                // the utilities of the actions under the ValueIteration solution, to compare the learned policy with
+                FlatMaze solved = model.withConfig(model.getConfig());
+                SolverResult reference = ValueIteration.solve(solved);
+                double[] optimal = actionUtilities(solved, solved.getUtilities());
+
+                System.out.printf("%s (%dx%d, %d non-wall states): %s with %d actors, epsilon %.2f\n", fileName,
+                        model.getNumCol(), model.getNumRow(), model.getNumNonWallStates(), method, actors, epsilon);
+                System.out.printf("%-14s %10s %14s\n", "Steps", "Matching", "Max |V - U|");
+
+                long start = System.nanoTime();
+                long steps = 0;
+                int matching = 0;
+                for (int check = 1; steps < maxSteps; check++) {
+                    learner.run(checkEvery, pool);
+                    steps += (long) checkEvery / actors * actors;
+                    matching = learner.countMatching(optimal);
+                    boolean matched = matching == model.getNumNonWallStates();
+                    if (check % printEvery == 0 || matched)
+                        System.out.printf("%-14d %10d %14.4f\n", steps, matching, learner.maxError(solved.getUtilities()));
+                    if (matched)
+                        break;
+                }
+                long nanos = System.nanoTime() - start;
+
+                if (matching == model.getNumNonWallStates())
+                    System.out.printf("Matched the policy of %s (%d iterations) after %d steps",
+                            reference.getAlgorithm(), reference.getIterations(), steps);
+                else
+                    System.out.printf("Did not match the policy of %s in %d steps (%d of %d states)",
+                            reference.getAlgorithm(), steps, matching, model.getNumNonWallStates());
+                System.out.printf(", in %.3f ms, %.1f million steps/s\n\n", nanos / 1e6, steps / (nanos / 1e3));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final int[] successors;
+    private final double[] rewards;
+    private final double discount;
+    // probability of the intended direction, and of the intended direction or the right angle to the left
+    private final double probabilityUp, probabilityUpOrLeft;
+    private final Method method;
+    private final double epsilon;
+    private final int episodeLength;
+    // the non-wall states, to restart from
+    private final int[] openStates;
+    // Q(s, a) at state * 4 + direction, and the number of times it was updated
+    private final double[] q;
+    private final int[] visits;
+    private final Actor[] actors;
+
+    public QLearning(FlatMaze model, Method method, double epsilon, int episodeLength, int numActors, long seed) {
+        MdpConfig config = model.getConfig();
+        this.successors = model.getSuccessors();
+        this.rewards = model.getRewards();
+        this.discount = config.getDiscountFactor();
+        this.probabilityUp = config.getProbabilityUp();
+        this.probabilityUpOrLeft = (double) config.getProbabilityUp() + config.getProbabilityLeft();
+        this.method = method;
+        this.epsilon = epsilon;
+        this.episodeLength = episodeLength;
+
+        this.openStates = new int[model.getNumNonWallStates()];
+        for (int state = 0, n = 0; state < model.getNumStates(); state++) {
+            if (!model.isWall(state))
+                openStates[n++] = state;
+        }
+        this.q = new double[model.getNumStates() * Coordinates.ALL_DIRECTIONS];
+        this.visits = new int[q.length];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.actors = new Actor[numActors];
+        for (int i = 0; i < numActors; i++) {
+            actors[i] = new Actor(random.split());
+        }
+    }
+
+    /**
+     run(int steps, ForkJoinPool pool): lets the actors take the given number of steps between them, in parallel on
+     the pool, carrying on from where they stopped in the last call.
+     */
+    public void run(int steps, ForkJoinPool pool) {
+        pool.invoke(new Actors(0, actors.length, steps / actors.length));
+    }
+
+    /**
+     Actors runs the actors numbered from to to - 1, each for the given number of steps.
+     */
+    private final class Actors extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final int from, to, steps;
+
+        private Actors(int from, int to, int steps) {
+            this.from = from;
+            this.to = to;
+            this.steps = steps;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Actors(from, middle, steps), new Actors(middle, to, steps));
+                return;
+            }
+            actors[from].run(steps);
+        }
+    }
+
+    /**
+     Actor is one agent moving through the maze, with its own random generator, position and next action.
+     */
+    private final class Actor {
+        private final SplittableRandom random;
+        private int state, action, step;
+
+        private Actor(SplittableRandom random) {
+            this.random = random;
+            restart();
+        }
+
+        private void restart() {
+            state = openStates[random.nextInt(openStates.length)];
+            action = chooseAction(state, random);
+            step = 0;
+        }
+
+        private void run(int steps) {
+            // local copies of the fields the loop reads
+            int[] successors = QLearning.this.successors;
+            double[] q = QLearning.this.q;
+            int[] visits = QLearning.this.visits;
+            int state = this.state, action = this.action;
+
+            for (int i = 0; i < steps; i++) {
+                if (step++ == episodeLength) {
+                    restart();
+                    state = this.state;
+                    action = this.action;
+                }
+
+                // the outcome of the action: intended direction, right angle left or right angle right
+                double u = random.nextDouble();
+                int outcome = u < probabilityUp ? 0 : u < probabilityUpOrLeft ? 1 : 2;
+                int next = successors[state * FlatMaze.SUCCESSORS_PER_STATE + action * FlatMaze.OUTCOMES + outcome];
+                int nextAction = chooseAction(next, random);
+
+                double target = rewards[state] + discount * (method == Method.SARSA
+                        ? q[next * Coordinates.ALL_DIRECTIONS + nextAction] : q[next * Coordinates.ALL_DIRECTIONS + bestAction(next)]);
+                int index = state * Coordinates.ALL_DIRECTIONS + action;
+                int n = ++visits[index];
+                q[index] += (target - q[index]) * learningRate(n);
+
+                state = next;
+                action = nextAction;
+            }
+            this.state = state;
+            this.action = action;
+        }
+    }
+
+    /**
+     learningRate(int n): 1 / n^ALPHA_POWER, without calling Math.pow on every step: n is shifted right by k bits to
+     fit the table, and 1 / n^ALPHA_POWER = 1 / (n >> k)^ALPHA_POWER / 2^(k * ALPHA_POWER), up to the dropped bits
+     (a relative error below ALPHA_POWER / 2^(RATE_BITS - 1)).
+     */
+    static double learningRate(int n) {
+        int k = Math.max(0, 32 - Integer.numberOfLeadingZeros(n) - RATE_BITS);
+        return RATES[n >>> k] * RATE_SCALES[k];
+    }
+
+    // epsilon-greedy: a random action with probability epsilon, the best action otherwise
+    private int chooseAction(int state, SplittableRandom random) {
+        if (random.nextDouble() < epsilon)
+            return random.nextInt(Coordinates.ALL_DIRECTIONS);
+        return bestAction(state);
+    }
+
+    // the action with the highest Q(s, a), the first one on ties
+    private int bestAction(int state) {
+        int offset = state * Coordinates.ALL_DIRECTIONS, best = 0;
+        for (int direction = 1; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+            if (q[offset + direction] > q[offset + best])
+                best = direction;
+        }
+        return best;
+    }
+
+    /**
+     countMatching(double[] optimal): the number of non-wall states in which the greedy action for Q is as good as
+     the best action by the given utilities of the actions, up to TIE (several actions can be optimal).
+     */
+    public int countMatching(double[] optimal) {
+        int matching = 0;
+        for (int state : openStates) {
+            int offset = state * Coordinates.ALL_DIRECTIONS;
+            double best = optimal[offset];
+            for (int direction = 1; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+                best = Math.max(best, optimal[offset + direction]);
+            }
+            if (optimal[offset + bestAction(state)] >= best - TIE)
+                matching++;
+        }
+        return matching;
+    }
+
+    /**
+     maxError(double[] utilities): the largest difference between the learned utility of a state, max over a of
+     Q(s, a), and the given utility.
+     */
+    public double maxError(double[] utilities) {
+        double maxError = 0;
+        for (int state : openStates) {
+            double value = q[state * Coordinates.ALL_DIRECTIONS + bestAction(state)];
+            maxError = Math.max(maxError, Math.abs(value - utilities[state]));
+        }
+        return maxError;
+    }
+
+    /**
+     actionUtilities(FlatMaze model, double[] utilities): the utility of every action in every state given the
+     utilities of the states, R(s) + discount * sum over s' of P(s' | s, a) * U(s'), at state * 4 + direction.
+     */
+    static double[] actionUtilities(FlatMaze model, double[] utilities) {
+        MdpConfig config = model.getConfig();
+        float[] probabilities = { config.getProbabilityUp(), config.getProbabilityLeft(), config.getProbabilityRight() };
+        int[] successors = model.getSuccessors();
+        double[] actions = new double[model.getNumStates() * Coordinates.ALL_DIRECTIONS];
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (model.isWall(state))
+                continue;
+            for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+                double expected = 0;
+                for (int outcome = 0; outcome < FlatMaze.OUTCOMES; outcome++) {
+                    expected += probabilities[outcome]
+                            * utilities[successors[state * FlatMaze.SUCCESSORS_PER_STATE + direction * FlatMaze.OUTCOMES + outcome]];
+                }
+                actions[state * Coordinates.ALL_DIRECTIONS + direction] = model.getRewards()[state]
+                        + config.getDiscountFactor() * expected;
+            }
+        }
+        return actions;
+    }
+
+    public double[] getQ() {
+        return q;
+    }
+}
@@ -0,0 +1,70 @@
+package main;
+
+import structure.FlatMaze;
+
+/**
+ ScalarBellmanKernel backs up one state at a time, in column-major order, with ValueIteration.calculateUtility and
+ PolicyIteration.policyImprovement. It runs on any JVM and is used whenever the vector kernel is not available.
+ */
+class ScalarBellmanKernel implements BellmanKernel {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    /**
+     sweep(FlatMaze model):
+     updates the utility of every non-wall state once, in place and in column-major order (Gauss-Seidel style),
+     and returns the maximum change in utility over all states.
+     */
+    @Override
+    public double sweep(FlatMaze model) {
+        double maxChangeInUtility = 0;
+
+        // loop over all states of the maze, in the same column-major order as the cells
+        for (int state = 0; state < model.getNumStates(); state++) {
+            // if the current state is a wall, skip it
+            if (model.isWall(state))
+                continue;
+
+            // calculates the change in utility for the current state based on its neighbors and
+            // updates the current state's utility.
+            double changeInUtility = ValueIteration.calculateUtility(model, state);
+
+            // if the current change in utility is greater than the current maximum change in utility,
+            // update the maximum change in utility to the current change in utility
+            if (changeInUtility > maxChangeInUtility)
+                maxChangeInUtility = changeInUtility;
+        }
+
+        return maxChangeInUtility;
+    }
+
+    /**
+     improvePolicy(FlatMaze model):
+     performs policy improvement for every non-wall state, and returns true if the action of any state changed.
+     */
+    @Override
+    public boolean improvePolicy(FlatMaze model) {
+        boolean changeOrNot = false;
+
+        // Loops over all states in the maze and performs policy improvement for each non-wall state
+        for (int state = 0; state < model.getNumStates(); state++) {
+            if (model.isWall(state)) {
+                continue;
+            }
+
+            // evaluates the optimal action for the state and updates the state's action accordingly
+            // If the policyImprovement method returns true, indicates that the optimal action for the state has changed
+            boolean changed = PolicyIteration.policyImprovement(model, state);
+
+            // If any policy changes were made during this iteration, sets changeOrNot to true
+            if (changed) {
+                changeOrNot = true;
+            }
+        }
+
+        return changeOrNot;
+    }
+}
@@ -0,0 +1,315 @@
+package main;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import structure.CellAttribute;
+import structure.FlatMaze;
+import structure.MdpConfig;
+
+/**
+ SolutionCache keeps converged utilities and policies on disk, so a maze that has been solved before with the same
+ rewards, transition probabilities, discount factor and algorithm does not have to be solved again.
+ Each solution is one file in the cache directory, named after the SHA-256 hash of the maze's size and cell types
+ and of the parameters. A file holds (little-endian):
+    int      MAGIC ("MZSC"), VERSION
+    long     hash of the parameters and the algorithm only
+    int      numCol, numRow
+    byte[]   the cell type of every state (CellAttribute ordinal)
+    byte[]   the action of every state
+    zero padding up to a multiple of 8 bytes
+    double[] the utility of every state
+ lookup() returns HIT when the maze has been solved before, and copies the solution into the model. Otherwise, if a
+ solution of a maze of the same size and parameters differs in at most NEAR_MATCH_FRACTION of its cells, it returns
+ WARM and copies that solution into every cell of the model that has the same type, as a warm start for the solver.
+ The cache is kept below a maximum size by deleting the least recently used solutions (the modification time of a
+ file is updated whenever it is used).
+ */
+public class SolutionCache {
+    public final static int MAGIC = 0x4D5A5343;
+    public final static int VERSION = 1;
+    private final static String EXTENSION = ".sol";
+    private final static int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    // largest fraction of cells that may differ for a solution to be used as a warm start
+    private final static double NEAR_MATCH_FRACTION = 0.1;
+
+    public enum Lookup { HIT, WARM, MISS }
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     SolutionCache(Path directory, long maxBytes): a cache in the given directory (created if needed), holding at most
+     maxBytes of solutions.
+     */
+    public SolutionCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     lookup(FlatMaze model, String algorithm): looks for a solution of the model's maze by the given algorithm with the
+     model's parameters (its MdpConfig), and copies it into the model on a HIT (exact) or WARM (near-identical maze) result.
+     */
+    public Lookup lookup(FlatMaze model, String algorithm) {
+        long parameterHash = parameterHash(model.getConfig(), algorithm);
+        Path exact = directory.resolve(key(model, parameterHash) + EXTENSION);
+
+        if (Files.isRegularFile(exact) && read(exact, model, parameterHash, 0)) {
+            touch(exact);
+            return Lookup.HIT;
+        }
+
+        // finds the solution of a maze with the same size and parameters with the fewest different cells
+        Path nearest = null;
+        int nearestDistance = (int) (NEAR_MATCH_FRACTION * model.getNumStates());
+        for (Path file : entries()) {
+            int distance = distance(file, model, parameterHash);
+            if (distance >= 0 && distance <= nearestDistance) {
+                nearest = file;
+                nearestDistance = distance;
+            }
+        }
+
+        if (nearest != null && read(nearest, model, parameterHash, nearestDistance)) {
+            touch(nearest);
+            return Lookup.WARM;
+        }
+        return Lookup.MISS;
+    }
+
+    /**
+     store(FlatMaze model, String algorithm): stores the model's utilities and policy as the solution of its maze by
+     the given algorithm, then evicts the least recently used solutions while the cache is too large.
+     */
+    public void store(FlatMaze model, String algorithm) {
+        long parameterHash = parameterHash(model.getConfig(), algorithm);
+        int numStates = model.getNumStates();
+        int utilitiesOffset = utilitiesOffset(numStates);
+        ByteBuffer buffer = ByteBuffer.allocate(utilitiesOffset + 8 * numStates).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(parameterHash).putInt(model.getNumCol()).putInt(model.getNumRow());
+        buffer.put(model.getCellTypes()).put(model.getPolicy());
+        buffer.position(utilitiesOffset);
+        for (double utility : model.getUtilities()) {
+            buffer.putDouble(utility);
+        }
+        buffer.flip();
+
+        Path file = directory.resolve(key(model, parameterHash) + EXTENSION);
+        try {
+            // writes to a temporary file first, so other threads and processes never read a partial solution
+            Path temporary = Files.createTempFile(directory, "solution", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        evict();
+    }
+
+    // deletes the least recently used solutions until the cache is no larger than maxBytes
+    private synchronized void evict() {
+        try {
+            List<Path> files = entries();
+            long totalBytes = 0;
+            for (Path file : files) {
+                totalBytes += Files.size(file);
+            }
+            if (totalBytes <= maxBytes)
+                return;
+
+            List<FileTime> times = new ArrayList<FileTime>();
+            for (Path file : files) {
+                times.add(Files.getLastModifiedTime(file));
+            }
+            List<Integer> order = new ArrayList<Integer>();
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+            order.sort((a, b) -> times.get(a).compareTo(times.get(b)));
+
+            for (int i = 0; i < order.size() && totalBytes > maxBytes; i++) {
+                Path file = files.get(order.get(i));
+                totalBytes -= Files.size(file);
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> entries() {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    // marks the solution as used now, for LRU eviction
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // the solution was evicted by another thread or process in the meantime, which is harmless
+        }
+    }
+
+    private static int utilitiesOffset(int numStates) {
+        return (HEADER_SIZE + 2 * numStates + 7) & ~7;
+    }
+
+    /**
+     readCells(FileChannel channel, FlatMaze model, long parameterHash): reads the header and the cell types of the
+     solution file, or returns null if it is not a solution for a maze of the model's size and parameters. The file is
+     read into a heap buffer rather than mapped, as a mapping would keep the file open after the channel is closed
+     (until the buffer is garbage collected), and an open file cannot be replaced or deleted on Windows.
+     */
+    private static ByteBuffer readCells(FileChannel channel, FlatMaze model, long parameterHash) throws IOException {
+        int numStates = model.getNumStates();
+        if (channel.size() != utilitiesOffset(numStates) + 8L * numStates)
+            return null;
+
+        ByteBuffer buffer = readFully(channel, 0, HEADER_SIZE + numStates);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != parameterHash
+                || buffer.getInt(16) != model.getNumCol() || buffer.getInt(20) != model.getNumRow())
+            return null;
+        return buffer;
+    }
+
+    // reads size bytes of the file from the given position into a new little-endian heap buffer
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Solution file truncated");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // the number of cells whose type differs between the solution's maze and the model (from the cell types of a
+    // buffer returned by readCells)
+    private static int distance(ByteBuffer cells, FlatMaze model) {
+        byte[] cellTypes = model.getCellTypes();
+        int distance = 0;
+        for (int state = 0; state < cellTypes.length; state++) {
+            if (cells.get(HEADER_SIZE + state) != cellTypes[state])
+                distance++;
+        }
+        return distance;
+    }
+
+    // the number of cells whose type differs between the solution's maze and the model, or -1 if it does not apply
+    private static int distance(Path file, FlatMaze model, long parameterHash) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer cells = readCells(channel, model, parameterHash);
+            return cells == null ? -1 : distance(cells, model);
+        } catch (IOException e) {
+            // a solution that cannot be read (e.g. deleted by eviction meanwhile) is treated as absent
+            return -1;
+        }
+    }
+
+    /**
+     read(Path file, FlatMaze model, long parameterHash, int expectedDistance): copies the solution into every state of
+     the model with the same cell type, and returns whether the file was a usable solution. The policy and utilities
+     are only read once the cell types have been checked.
+     */
+    private static boolean read(Path file, FlatMaze model, long parameterHash, int expectedDistance) {
+        int numStates = model.getNumStates();
+        byte[] cellTypes = model.getCellTypes();
+        ByteBuffer cells, solution;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            cells = readCells(channel, model, parameterHash);
+            if (cells == null || distance(cells, model) != expectedDistance)
+                return false;
+            // the policy, the padding and the utilities
+            solution = readFully(channel, HEADER_SIZE + numStates, (int) channel.size() - HEADER_SIZE - numStates);
+        } catch (IOException e) {
+            // a solution that cannot be read (e.g. deleted by eviction meanwhile) is treated as absent
+            return false;
+        }
+
+        int utilitiesOffset = utilitiesOffset(numStates) - HEADER_SIZE - numStates;
+        for (int state = 0; state < numStates; state++) {
+            if (cells.get(HEADER_SIZE + state) == cellTypes[state]) {
+                model.getPolicy()[state] = solution.get(state);
+                model.getUtilities()[state] = solution.getDouble(utilitiesOffset + 8 * state);
+            }
+        }
+        return true;
+    }
+
+    // the cache key of the model's maze: SHA-256 of its size, cell types and the parameter hash, in hexadecimal
+    private static String key(FlatMaze model, long parameterHash) {
+        MessageDigest digest = sha256();
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(parameterHash).putInt(model.getNumCol()).putInt(model.getNumRow());
+        digest.update(header.array());
+        digest.update(model.getCellTypes());
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     parameterHash(MdpConfig config, String algorithm): hash of everything other than the maze that the solution
+     depends on: the rewards, transition probabilities and discount factor of the config, and the algorithm (whose
+     converged utilities differ slightly from those of other algorithms).
+     */
+    static long parameterHash(MdpConfig config, String algorithm) {
+        ByteBuffer parameters = ByteBuffer.allocate(8 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        parameters.putFloat(config.getReward(CellAttribute.WHITE)).putFloat(config.getReward(CellAttribute.GREEN))
+                .putFloat(config.getReward(CellAttribute.BROWN)).putFloat(config.getReward(CellAttribute.WALL))
+                .putFloat(config.getProbabilityUp()).putFloat(config.getProbabilityLeft())
+                .putFloat(config.getProbabilityRight()).putFloat(config.getDiscountFactor());
+
+        MessageDigest digest = sha256();
+        digest.update(parameters.array());
+        digest.update(algorithm.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
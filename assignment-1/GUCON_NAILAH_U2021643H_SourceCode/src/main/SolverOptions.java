@@ -0,0 +1,168 @@
+package main;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import output.binaryOutput;
+import output.streamOutput;
+import output.traceOutput;
+import structure.CellAttribute;
+import structure.FlatMaze;
+import structure.MdpConfig;
+
+/**
+ SolverOptions parses the command line arguments of the solvers: leading arguments of the form "--name=value"
+ are options, and every other argument is the file name of a maze to solve (see MazeFile.read). If no maze is given, "maze.txt" is used.
+ e.g. --evaluation=exact --progress=final --output=binary --sample-every=10 --sample-states=0:0,5:5 complicated-maze-48x48-1.txt maze.txt
+ The parameters of the MDP default to those in the Const class, and can be changed with (see getConfig)
+    --discount=0.9 --reward-white=-0.1 --reward-green=1 --reward-brown=-1 --probabilities=0.7,0.15,0.15
+ */
+public class SolverOptions {
+    private final Map<String, String> options;
+    private final String[] fileNames;
+
+    private SolverOptions(Map<String, String> options, String[] fileNames) {
+        this.options = options;
+        this.fileNames = fileNames;
+    }
+
+    public static SolverOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<String, String>();
+        int first = 0;
+
+        while (first < args.length && args[first].startsWith("--")) {
+            int equals = args[first].indexOf('=');
+            if (equals < 0)
+                options.put(args[first].substring(2), "true");
+            else
+                options.put(args[first].substring(2, equals), args[first].substring(equals + 1));
+            first++;
+        }
+
+        return new SolverOptions(options, Arrays.copyOfRange(args, first, args.length));
+    }
+
+    public String get(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    public long getLong(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    /**
+     getFloats(String name): parses a comma-separated list of numbers, or returns null if the option is not given.
+     */
+    public float[] getFloats(String name) {
+        if (!options.containsKey(name))
+            return null;
+
+        String[] values = options.get(name).split(",");
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = Float.parseFloat(values[i].trim());
+        }
+        return floats;
+    }
+
+    /**
+     getConfig(): the MdpConfig given by the options, i.e. MdpConfig.DEFAULT with any of these changed:
+        --discount=F                   the discount factor
+        --reward-white=F, --reward-green=F, --reward-brown=F
+                                       the reward of a cell type
+        --probabilities=UP,LEFT,RIGHT  the probabilities of the intended direction and of either right angle
+     */
+    public MdpConfig getConfig() {
+        MdpConfig config = MdpConfig.DEFAULT;
+
+        if (options.containsKey("discount"))
+            config = config.withDiscountFactor(Float.parseFloat(options.get("discount")));
+        for (CellAttribute cellAttribute : CellAttribute.values()) {
+            String name = "reward-" + cellAttribute.toString().toLowerCase();
+            if (options.containsKey(name))
+                config = config.withReward(cellAttribute, Float.parseFloat(options.get(name)));
+        }
+        float[] probabilities = getFloats("probabilities");
+        if (probabilities != null) {
+            if (probabilities.length != 3)
+                throw new IllegalArgumentException("Expected three probabilities, got " + options.get("probabilities") + ".");
+            config = config.withProbabilities(probabilities[0], probabilities[1], probabilities[2]);
+        }
+
+        return config;
+    }
+
+    /**
+     getStates(String name, int numRow): parses a list of cells given as "col:row,col:row,..." into state indices
+     of a maze with numRow rows, or returns null if the option is not given.
+     */
+    public int[] getStates(String name, int numRow) {
+        if (!options.containsKey(name))
+            return null;
+
+        String[] cells = options.get(name).split(",");
+        int[] states = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            String[] colRow = cells[i].split(":");
+            states[i] = Integer.parseInt(colRow[0].trim()) * numRow + Integer.parseInt(colRow[1].trim());
+        }
+        return states;
+    }
+
+    /**
+     createOutput(String outputName, FlatMaze model): creates the trace output chosen with --output, sampled as
+     given by --sample-every and --sample-states:
+        csv (default)   a CSV file (streamOutput)
+        binary          a binary trace file of doubles (binaryOutput), read back with output.traceReader
+        binary-float    a binary trace file of floats, half the size
+     */
+    public traceOutput createOutput(String outputName, FlatMaze model) {
+        String format = get("output", "csv");
+        int every = getInt("sample-every", 1);
+        int[] states = getStates("sample-states", model.getNumRow());
+
+        switch (format) {
+            case "csv":
+                return new streamOutput(outputName, model, every, states);
+            case "binary":
+                return new binaryOutput(outputName, model, false, every, states);
+            case "binary-float":
+                return new binaryOutput(outputName, model, true, every, states);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+
+    /**
+     createProgress(FlatMaze model): creates the progress listener chosen with --progress (see ConsoleProgress):
+     all (default), final, none, or a number N to show every Nth iteration.
+     */
+    public ProgressListener createProgress(FlatMaze model) {
+        return ConsoleProgress.parse(get("progress", "all"), model);
+    }
+
+    /**
+     mazeName(String fileName): the name of a maze file for naming its output files, i.e. the file name without
+     its directory and ".txt" extension, or "stdin" for "-".
+     */
+    public static String mazeName(String fileName) {
+        if (fileName.equals("-"))
+            return "stdin";
+        return Paths.get(fileName).getFileName().toString().replace(".txt", "");
+    }
+
+    public String[] getFileNames() {
+        return getFileNames("maze.txt");
+    }
+
+    // returns the maze file names given, or only defaultFileName if none were given
+    public String[] getFileNames(String defaultFileName) {
+        return fileNames.length > 0 ? fileNames : new String[] { defaultFileName };
+    }
+}
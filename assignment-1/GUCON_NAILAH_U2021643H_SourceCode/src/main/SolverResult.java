@@ -0,0 +1,35 @@
+package main;
+
+/**
+ SolverResult holds the statistics of one run of a solver: the number of iterations of its main loop,
+ the number of single-state backups (utility updates) it performed, and the wall time it took.
+ */
+public class SolverResult {
+    private final String algorithm;
+    private final int iterations;
+    private final long backups;
+    private final long wallTimeNanos;
+
+    public SolverResult(String algorithm, int iterations, long backups, long wallTimeNanos) {
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.backups = backups;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getBackups() {
+        return backups;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+}
@@ -0,0 +1,165 @@
+package main;
+
+import java.util.Arrays;
+
+import structure.FlatMaze;
+import structure.MdpConfig;
+import structure.SparseMatrix;
+
+/**
+ Exact Policy Evaluation:
+ Instead of applying the Bellman equation of the current policy a fixed number of times, the utilities of the
+ policy are found by solving the linear system it defines directly:
+    U = R + gamma * P_pi * U    <=>    (I - gamma * P_pi) U = R
+ where P_pi is the transition matrix of the current policy, i.e. P_pi(s, s') is the probability of reaching s'
+ from s with the action the policy gives s. Each row of P_pi has at most three non-zeros (the three outcomes of
+ the action), so the system is stored as a SparseMatrix and solved with BiCGSTAB (the matrix is not symmetric),
+ preconditioned with its diagonal, until the largest residual is below TOLERANCE.
+ Walls are kept in the system as rows of the identity, so their utility stays what it is.
+ */
+public class SparsePolicyEvaluation {
+    // largest allowed residual |R - (I - gamma * P_pi) U| of any state
+    private final static double TOLERANCE = 1e-8;
+    // upper bound on the number of BiCGSTAB iterations for a single evaluation
+    private final static int MAX_ITERATIONS = 1000;
+
+    /**
+     evaluate(FlatMaze model, boolean warmStart):
+     sets the utilities of the model to the utilities of its current policy, and returns the number of
+     BiCGSTAB iterations that were needed. With warmStart the solver starts from the current utilities of the
+     model (the previous policy's utilities, in policy iteration), otherwise it starts from the rewards.
+     */
+    public static int evaluate(FlatMaze model, boolean warmStart) {
+        SparseMatrix matrix = buildMatrix(model);
+
+        // right-hand side: the reward of each state, or the fixed utility of each wall
+        double[] rewards = new double[model.getNumStates()];
+        for (int state = 0; state < model.getNumStates(); state++) {
+            rewards[state] = model.isWall(state) ? model.getUtilities()[state] : model.getRewards()[state];
+        }
+
+        if (!warmStart)
+            System.arraycopy(rewards, 0, model.getUtilities(), 0, rewards.length);
+
+        return solve(matrix, rewards, model.getUtilities(), TOLERANCE, MAX_ITERATIONS);
+    }
+
+    /**
+     buildMatrix(FlatMaze model): builds I - gamma * P_pi for the current policy of the model.
+     */
+    static SparseMatrix buildMatrix(FlatMaze model) {
+        int[] successors = model.getSuccessors();
+        byte[] policy = model.getPolicy();
+        SparseMatrix matrix = new SparseMatrix(model.getNumStates(), model.getNumStates() * (FlatMaze.OUTCOMES + 1));
+        MdpConfig config = model.getConfig();
+        double discount = config.getDiscountFactor();
+
+        for (int state = 0; state < model.getNumStates(); state++) {
+            matrix.add(state, 1);
+
+            if (!model.isWall(state)) {
+                int d = state * FlatMaze.SUCCESSORS_PER_STATE + policy[state] * FlatMaze.OUTCOMES;
+                matrix.add(successors[d], -discount * config.getProbabilityUp());
+                matrix.add(successors[d + 1], -discount * config.getProbabilityLeft());
+                matrix.add(successors[d + 2], -discount * config.getProbabilityRight());
+            }
+
+            matrix.endRow();
+        }
+
+        return matrix;
+    }
+
+    /**
+     solve(SparseMatrix a, double[] b, double[] x, double tolerance, int maxIterations):
+     solves A x = b with BiCGSTAB and a diagonal (Jacobi) preconditioner, starting from the values already in x,
+     until the largest residual |b - A x| is below tolerance or maxIterations have been done.
+     Returns the number of iterations.
+     */
+    static int solve(SparseMatrix a, double[] b, double[] x, double tolerance, int maxIterations) {
+        int n = a.getSize();
+        double[] inverseDiagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            inverseDiagonal[i] = 1 / a.getDiagonal(i);
+        }
+
+        double[] r = new double[n], rHat = new double[n], p = new double[n], v = new double[n];
+        double[] pHat = new double[n], s = new double[n], sHat = new double[n], t = new double[n];
+
+        // r = b - A x, and the shadow residual starts as a copy of it
+        a.multiply(x, r);
+        for (int i = 0; i < n; i++) {
+            r[i] = b[i] - r[i];
+            rHat[i] = r[i];
+        }
+        if (maxNorm(r) <= tolerance)
+            return 0;
+
+        double rho = 1, alpha = 1, omega = 1;
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+
+            double rhoNext = dot(rHat, r);
+            if (rhoNext == 0 || omega == 0) {
+                // breakdown: restart with the current residual as the shadow residual
+                System.arraycopy(r, 0, rHat, 0, n);
+                Arrays.fill(p, 0);
+                Arrays.fill(v, 0);
+                rho = alpha = omega = 1;
+                rhoNext = dot(rHat, r);
+            }
+
+            double beta = (rhoNext / rho) * (alpha / omega);
+            for (int i = 0; i < n; i++) {
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+                pHat[i] = inverseDiagonal[i] * p[i];
+            }
+            a.multiply(pHat, v);
+            alpha = rhoNext / dot(rHat, v);
+
+            for (int i = 0; i < n; i++) {
+                s[i] = r[i] - alpha * v[i];
+            }
+            if (maxNorm(s) <= tolerance) {
+                for (int i = 0; i < n; i++) {
+                    x[i] += alpha * pHat[i];
+                }
+                break;
+            }
+
+            for (int i = 0; i < n; i++) {
+                sHat[i] = inverseDiagonal[i] * s[i];
+            }
+            a.multiply(sHat, t);
+            omega = dot(t, s) / dot(t, t);
+
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * pHat[i] + omega * sHat[i];
+                r[i] = s[i] - omega * t[i];
+            }
+            if (maxNorm(r) <= tolerance)
+                break;
+
+            rho = rhoNext;
+        }
+
+        return iteration;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double maxNorm(double[] a) {
+        double max = 0;
+        for (double value : a) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+}
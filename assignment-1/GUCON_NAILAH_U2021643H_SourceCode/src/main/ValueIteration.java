@@ -1,11 +1,12 @@
 package main;
 
+import java.util.Formatter;
+
 import structure.Maze;
 import structure.Coordinates;
-import structure.Const;
-import structure.CellAttribute;
-import structure.Cell;
-import output.createOutput;
+import structure.MdpConfig;
+import structure.FlatMaze;
+import output.traceOutput;
 
 /**
  Value Iteration:
@@ -22,119 +23,173 @@ public class ValueIteration {
     // for a given state, before accounting for the discount factor
     private final static double EPSILON = C * R_MAX;
 
+    /**
+     main(String[] args): solves every maze file given as an argument (e.g. "complicated-maze-48x48-4.txt"),
+     or "maze.txt" if none are given. The size of each maze is read from its file, so mazes of different sizes
+     can be solved one after another in the same run without recompiling.
+     Options (see SolverOptions):
+        --progress=final           only show the final iteration (all, final, none, or every Nth iteration)
+        --output=binary            write a binary trace instead of a CSV file (binary-float for floats)
+        --sample-every=N           only record every Nth iteration in the output file
+        --sample-states=c:r,...    only record the given cells in the output file
+        --discount=F, ...          change the rewards, probabilities or discount factor (see SolverOptions.getConfig)
+     */
     public static void main(String[] args) {
-        /** CHANGE THIS to the complicated mazes txt files e.g. "complicated-maze-48x48-4.txt" */
-        Maze maze = new Maze("maze.txt");
-        runValueIteration(maze);
+        SolverOptions options = SolverOptions.parse(args);
+        String[] fileNames = options.getFileNames();
+
+        for (String fileName : fileNames) {
+            Maze maze = new Maze(fileName, options.getConfig());
+            // when solving several mazes, name each output file after its maze so they do not overwrite each other
+            String outputName = fileNames.length > 1 ? "ValueIteration_" + SolverOptions.mazeName(fileName) : "ValueIteration";
+            runValueIteration(maze, outputName, options);
+        }
     }
 
-    private static void runValueIteration(Maze maze) {
+    private static void runValueIteration(Maze maze, String outputName, SolverOptions options) {
         // initializes the iteration counter to 1
         int iteration = 1;
         // initializes the maximum change in utility to 0
         double maxChangeInUtility = 0;
+        // compiles the maze into primitive arrays for the Bellman updates
+        FlatMaze model = new FlatMaze(maze);
         // calculates the threshold for stopping the algorithm
-        double threshold = EPSILON * ((1 - Const.DISCOUNT_FACTOR) / Const.DISCOUNT_FACTOR);
+        double threshold = convergenceThreshold(model.getConfig());
         // output the progress of the algorithm
-        createOutput output = new createOutput("ValueIteration", maze);
+        traceOutput output = options.createOutput(outputName, model);
+        // shows the progress of the algorithm on the console
+        ProgressListener progress = options.createProgress(model);
+        // the report of the current iteration, only built when the iteration is shown
+        StringBuilder report = new StringBuilder();
+        Formatter formatter = new Formatter(report);
+        // time spent updating the utilities, not counting the output
+        long solverNanos = 0;
 
         System.out.println("Running Value Iteration...");
-        System.out.println();
-        System.out.println("Original Maze:");
-        // prints out the original maze
-        maze.print();
+        if (progress.shows(0, false)) {
+            // prints out the original maze
+            report.append("\nOriginal Maze:\n");
+            progress.show(report, model);
+        }
         // adds original maze to the output
-        output.add(maze);
+        output.add(model);
 
         do {
-            System.out.println("======================================================================================");
-            System.out.printf("Iteration: %d\n", iteration);
-            // resets the maximum change in utility to 0 at the beginning of each iteration
-            maxChangeInUtility = 0;
-
-            // loop over the columns of the maze
-            for (int c = 0; c < Const.NUM_COL; c++) {
-                // loop over the rows of the maze
-                for (int r = 0; r < Const.NUM_ROW; r++) {
-                    // gets the current cell based on the current column and row
-                    Cell curCell = maze.getCell(new Coordinates(c, r));
-
-                    // if the current cell is a wall, skip it
-                    if (curCell.getCellAttribute() == CellAttribute.WALL)
-                        continue;
-
-                    // calculates the change in utility for the current cell based on its neighbors and
-                    // updates the current cell's utility.
-                    double changeInUtility = calculateUtility(curCell, maze);
-
-                    // if the current change in utility is greater than the current maximum change in utility,
-                    // update the maximum change in utility to the current change in utility
-                    if (changeInUtility > maxChangeInUtility)
-                        maxChangeInUtility = changeInUtility;
-                }
-            }
+            // updates every state of the maze once and records the maximum change in utility
+            long start = System.nanoTime();
+            maxChangeInUtility = sweep(model);
+            solverNanos += System.nanoTime() - start;
 
-            System.out.println();
-            System.out.printf("Threshold: %5.5f\n", threshold);
-            System.out.printf("Maximum change in utility: %5.5f\n", maxChangeInUtility);
-            System.out.println();
             // print out the maze for the current iteration
-            System.out.printf("Updated Maze for Iteration %d:\n", iteration);
-            maze.print();
-            // add the maze for the current iteration to the output
-            output.add(maze);
-            if (maxChangeInUtility <= threshold){
-                System.out.println("Optimal value function has been obtained!");
+            if (progress.shows(iteration, maxChangeInUtility <= threshold)) {
+                report.setLength(0);
+                report.append("======================================================================================\n");
+                formatter.format("Iteration: %d\n", iteration);
+                report.append('\n');
+                formatter.format("Threshold: %5.5f\n", threshold);
+                formatter.format("Maximum change in utility: %5.5f\n", maxChangeInUtility);
+                report.append('\n');
+                formatter.format("Updated Maze for Iteration %d:\n", iteration);
+                progress.show(report, model);
             }
+            // add the maze for the current iteration to the output
+            output.add(model);
             // increment the iteration counter
             iteration++;
         } while (maxChangeInUtility > threshold); // run until the maximum change in utility is less than the threshold
 
+        System.out.println("Optimal value function has been obtained!");
+        progress.finished(iteration - 1, solverNanos);
+        // writes the final utilities and policy back into the maze
+        model.exportTo(maze);
         output.finalise();
     }
 
     /**
-     calculateUtility(Cell currCell, Maze maze):
-     calculates the new utility value for a given cell in the maze using the Bellman equation;
-     Bellman equation: reward + discount_factor * max(sub-utilities)
+     solve(FlatMaze model):
+     runs value iteration on the model without printing or writing any output, and returns the number of
+     iterations, backups and the wall time.
      */
-    private static double calculateUtility(Cell curCell, Maze maze) {
-        // Create an array to store the calculated sub-utilities for each direction.
-        double[] subUtilities = new double[Coordinates.ALL_DIRECTIONS];
+    public static SolverResult solve(FlatMaze model) {
+        long start = System.nanoTime();
+        int iteration = 0;
+        double maxChangeInUtility;
+        double threshold = convergenceThreshold(model.getConfig());
 
-        // Loop through all possible directions for the cell and calculate the sub-utility value for each direction.
-        // This is done by summing up the weighted utility values of the three neighbors (i.e. UP, LEFT, RIGHT)
-        // in the given direction.
-        for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
-            Cell[] neighbours = maze.getNeighboursOfCell(curCell, direction);
-            double up = Const.PROBABILITY_UP * neighbours[0].getUtility();
-            double left = Const.PROBABILITY_LEFT * neighbours[1].getUtility();
-            double right = Const.PROBABILITY_RIGHT * neighbours[2].getUtility();
+        do {
+            maxChangeInUtility = sweep(model);
+            iteration++;
+        } while (maxChangeInUtility > threshold);
 
-            subUtilities[direction] = up + left + right;
-        }
+        return new SolverResult("Value Iteration", iteration, (long) iteration * model.getNumNonWallStates(),
+                System.nanoTime() - start);
+    }
 
-        // Determine which direction with the maximum sub-utility and sets the utility and
-        // action of the current cell to the corresponding values.
+    /**
+     convergenceThreshold(MdpConfig config): the maximum change in utility below which value iteration stops,
+     i.e. EPSILON * (1 - discount_factor) / discount_factor
+     */
+    static double convergenceThreshold(MdpConfig config) {
+        float discountFactor = config.getDiscountFactor();
+        return EPSILON * ((1 - discountFactor) / discountFactor);
+    }
+
+    /**
+     sweep(FlatMaze model):
+     updates the utility of every non-wall state once, in place, and returns the maximum change in utility over all
+     states, with the BellmanKernel selected at startup.
+     */
+    static double sweep(FlatMaze model) {
+        return BellmanKernel.SELECTED.sweep(model);
+    }
+
+    /**
+     calculateUtility(FlatMaze model, int state):
+     calculates the new utility value for a given state in the maze using the Bellman equation, in place;
+     Bellman equation: reward + discount_factor * max(sub-utilities)
+     */
+    public static double calculateUtility(FlatMaze model, int state) {
+        return calculateUtility(model, state, model.getUtilities(), model.getUtilities());
+    }
+
+    /**
+     calculateUtility(FlatMaze model, int state, double[] from, double[] to):
+     same Bellman update, but reads the utilities of the successors from one array and writes the new utility
+     of the state to another, so that synchronous (Jacobi) sweeps can double-buffer the utilities.
+     */
+    static double calculateUtility(FlatMaze model, int state, double[] from, double[] to) {
+        int[] successors = model.getSuccessors();
+        MdpConfig config = model.getConfig();
+        int base = state * FlatMaze.SUCCESSORS_PER_STATE;
+
+        // Loop through all possible directions for the state and calculate the sub-utility value for each direction.
+        // This is done by summing up the weighted utility values of the three successors (i.e. UP, LEFT, RIGHT)
+        // in the given direction, keeping track of the direction with the maximum sub-utility.
         int maximumUtility = 0;
-        for (int utility = 1; utility < subUtilities.length; utility++) {
-            if (subUtilities[utility] > subUtilities[maximumUtility]) {
-                maximumUtility = utility;
+        double maxSubUtility = 0;
+        for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+            int d = base + direction * FlatMaze.OUTCOMES;
+            double up = config.getProbabilityUp() * from[successors[d]];
+            double left = config.getProbabilityLeft() * from[successors[d + 1]];
+            double right = config.getProbabilityRight() * from[successors[d + 2]];
+            double subUtility = up + left + right;
+
+            if (direction == 0 || subUtility > maxSubUtility) {
+                maxSubUtility = subUtility;
+                maximumUtility = direction;
             }
         }
 
-        // Retrieve the current reward of the cell
-        float curReward = curCell.getCellAttribute().getReward();
-        // Retrieve the current utility value of the cell
-        double prevUtility = curCell.getUtility();
-        // Calculate the new utility value for the cell using the Bellman equation:
-        // reward + discount_factor (0.99) * max(sub-utilities)
-        double newUtility = curReward + Const.DISCOUNT_FACTOR * subUtilities[maximumUtility];
-        // Set the new utility value and the corresponding action (aka policy) for the cell
-        curCell.setUtility(newUtility);
-        curCell.setAction(maximumUtility);
-
-        // Return the absolute difference between the old and new utility values of the cell
+        // Retrieve the previous utility value of the state
+        double prevUtility = from[state];
+        // Calculate the new utility value for the state using the Bellman equation:
+        // reward + discount_factor * max(sub-utilities)
+        double newUtility = model.getRewards()[state] + config.getDiscountFactor() * maxSubUtility;
+        // Set the new utility value and the corresponding action (aka policy) for the state
+        to[state] = newUtility;
+        model.getPolicy()[state] = (byte) maximumUtility;
+
+        // Return the absolute difference between the old and new utility values of the state
         return (Math.abs(prevUtility - newUtility));
     }
 }
@@ -0,0 +1,176 @@
+package output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// import structure classes needed
+import structure.FlatMaze;
+
+/**
+ binaryOutput records the utilities of every iteration in a compact binary trace file, which traceReader can
+ memory-map to read any iteration or any state's history without parsing or loading the whole file.
+ All values are little-endian. The file starts with a header:
+    int     MAGIC ("MZTR")
+    int     VERSION
+    int     numCol, numRow
+    int     value width in bytes: 8 for double frames, 4 for float frames
+    int     number of frames (written when the file is finalised)
+    int     number of recorded states
+    int[]   the recorded states (column-major state indices, see FlatMaze)
+    byte[]  the cell type of every state of the maze (CellAttribute ordinal)
+    zero padding up to a multiple of 8 bytes
+ followed by one fixed-width frame per recorded iteration:
+    long    iteration number (0 is the original maze)
+    double[] or float[]  the utility of every recorded state
+ Like streamOutput, it can record only every Nth iteration and/or only selected states; the last iteration added
+ is always recorded.
+ */
+public class binaryOutput implements traceOutput {
+    public final static int MAGIC = 0x4D5A5452;
+    public final static int VERSION = 1;
+    // offset of the number of frames in the header
+    final static int FRAME_COUNT_OFFSET = 20;
+    // size of the byte buffer in front of the file
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean floatFrames;
+    private final int every;
+    private final int[] states;
+    private FlatMaze lastModel;
+    private boolean lastWritten;
+    private int iteration, numFrames;
+
+    public binaryOutput(String fileName, FlatMaze model) {
+        this(fileName, model, false, 1, null);
+    }
+
+    /**
+     binaryOutput(String fileName, FlatMaze model, boolean floatFrames, int every, int[] states):
+     creates outputFiles/fileName_timestamp.bin and writes the header. With floatFrames the utilities are stored
+     as floats, halving the size of the file. Only every Nth iteration added is recorded (1 records all of them),
+     and only the given states are recorded (null records all of them).
+     */
+    public binaryOutput(String fileName, FlatMaze model, boolean floatFrames, int every, int[] states) {
+        if (every < 1)
+            throw new IllegalArgumentException("Iterations must be sampled at least every 1 iteration.");
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy_hh-mm-aa");
+        this.fileName = fileName + "_" + dateFormat.format(new Date());
+        this.floatFrames = floatFrames;
+        this.every = every;
+        this.states = states != null ? states : traceFiles.allStates(model);
+
+        int frameSize = 8 + this.states.length * (floatFrames ? 4 : 8);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, frameSize)).order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            String filePath = new File("").getAbsolutePath();
+            this.channel = FileChannel.open(Paths.get(filePath, "outputFiles", this.fileName + ".bin"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ensureRemaining(7 * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(model.getNumCol()).putInt(model.getNumRow())
+                .putInt(floatFrames ? 4 : 8).putInt(0).putInt(this.states.length);
+        for (int state : this.states) {
+            ensureRemaining(4);
+            buffer.putInt(state);
+        }
+        for (byte cellType : model.getCellTypes()) {
+            ensureRemaining(1);
+            buffer.put(cellType);
+        }
+        long headerSize = headerSize(this.states.length, model.getNumStates());
+        while (position() < headerSize) {
+            ensureRemaining(1);
+            buffer.put((byte) 0);
+        }
+    }
+
+    // size of the header, including padding, for the given number of recorded states and maze states
+    static long headerSize(int numRecordedStates, int numStates) {
+        long size = 7 * 4 + 4L * numRecordedStates + numStates;
+        return (size + 7) & ~7L;
+    }
+
+    @Override
+    public void add(FlatMaze model) {
+        lastModel = model;
+        lastWritten = iteration % every == 0;
+        if (lastWritten)
+            writeFrame(model, iteration);
+        iteration++;
+    }
+
+    private void writeFrame(FlatMaze model, int frameIteration) {
+        double[] utilities = model.getUtilities();
+
+        ensureRemaining(8 + states.length * (floatFrames ? 4 : 8));
+        buffer.putLong(frameIteration);
+        for (int state : states) {
+            if (floatFrames)
+                buffer.putFloat((float) utilities[state]);
+            else
+                buffer.putDouble(utilities[state]);
+        }
+        numFrames++;
+    }
+
+    // the number of bytes written to the file or to the buffer so far
+    private long position() {
+        try {
+            return channel.position() + buffer.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    private void flush() {
+        try {
+            traceFiles.flush(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     finalise(): records the last iteration added if it was not sampled, writes the number of frames into the
+     header and closes the file.
+     */
+    @Override
+    public void finalise() {
+        if (lastModel != null && !lastWritten)
+            writeFrame(lastModel, iteration - 1);
+
+        flush();
+        try {
+            ByteBuffer frameCount = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(numFrames);
+            frameCount.flip();
+            channel.write(frameCount, FRAME_COUNT_OFFSET);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println();
+        System.out.println("Please see " + fileName + ".bin for the results :)");
+    }
+}
@@ -0,0 +1,69 @@
+package output;
+
+import java.io.PrintStream;
+import java.util.Formatter;
+
+// import structure classes needed
+import structure.Action;
+import structure.CellAttribute;
+import structure.FlatMaze;
+
+/**
+ consoleOutput renders frames of a solver's progress (a report followed by the maze) to the console.
+ Each frame is built in a single StringBuilder, sized up front for the maze, and written with one print call,
+ instead of one System.out.printf per cell as Maze.print() does. The maze is drawn exactly as Maze.print() draws it.
+ */
+public class consoleOutput {
+    // characters per cell: "| " + cell type + " " + utility (7) + " " + action arrow (2 chars)
+    private final static int CELL_WIDTH = 14;
+    private final static CellAttribute[] CELL_ATTRIBUTES = CellAttribute.values();
+    private final static Action[] ACTIONS = Action.values();
+
+    private final PrintStream out;
+    private final StringBuilder frame;
+    private final Formatter formatter;
+
+    public consoleOutput(FlatMaze model) {
+        this(System.out, model);
+    }
+
+    public consoleOutput(PrintStream out, FlatMaze model) {
+        this.out = out;
+        // the maze, one line per row ending with "|", followed by an empty line, plus room for the report
+        this.frame = new StringBuilder(model.getNumRow() * (model.getNumCol() * CELL_WIDTH + 2) + 1 + 256);
+        this.formatter = new Formatter(frame);
+    }
+
+    /**
+     print(CharSequence report, FlatMaze model): writes the report followed by the maze in a single frame.
+     */
+    public void print(CharSequence report, FlatMaze model) {
+        frame.setLength(0);
+        frame.append(report);
+        appendMaze(model);
+        out.print(frame);
+        out.flush();
+    }
+
+    private void appendMaze(FlatMaze model) {
+        byte[] cellTypes = model.getCellTypes();
+        byte[] policy = model.getPolicy();
+        double[] utilities = model.getUtilities();
+
+        for (int r = 0; r < model.getNumRow(); r++) {
+            for (int c = 0; c < model.getNumCol(); c++) {
+                int state = model.index(c, r);
+
+                if (!model.isWall(state)) {
+                    frame.append("| ").append(CELL_ATTRIBUTES[cellTypes[state]].getSymbol()).append(' ');
+                    formatter.format("%7.3f", utilities[state]);
+                    frame.append(' ').append(ACTIONS[policy[state]].getSymbol());
+                } else {
+                    frame.append("|------------");
+                }
+            }
+            frame.append("|\n");
+        }
+        frame.append('\n');
+    }
+}
@@ -8,7 +8,6 @@ import java.util.List;
 
 // import structure classes needed
 import structure.Maze;
-import structure.Const;
 import structure.Coordinates;
 import structure.CellAttribute;
 public class createOutput {
@@ -30,8 +29,8 @@ public class createOutput {
         this.data = new ArrayList<List<Double>>();
 
         // loops through all the cells in the maze, and for each cell, adds a header to the headers list
-        for (int col = 0; col < Const.NUM_COL; col++) {
-            for (int row = 0; row < Const.NUM_ROW; row++) {
+        for (int col = 0; col < maze.getNumCol(); col++) {
+            for (int row = 0; row < maze.getNumRow(); row++) {
                 if (maze.getCell(new Coordinates(col, row)).getCellAttribute() == CellAttribute.WALL) {
                     // If it's a wall, add header = "Wall: (c, r)" where c and r are the column and row coordinates of the wall cell
                     headers.add("\"Wall: (" + col + ", " + row + ")\"");
@@ -47,8 +46,8 @@ public class createOutput {
         List<Double> nextCell = new ArrayList<Double>();
 
         // loops through all cells in the maze by iterating over all the columns and rows
-        for (int col = 0; col < Const.NUM_COL; col++) {
-            for (int row = 0; row < Const.NUM_ROW; row++) {
+        for (int col = 0; col < maze.getNumCol(); col++) {
+            for (int row = 0; row < maze.getNumRow(); row++) {
                 // retrieves the utility value and add to nextCell list
                 nextCell.add(maze.getCell(new Coordinates(col, row)).getUtility());
             }
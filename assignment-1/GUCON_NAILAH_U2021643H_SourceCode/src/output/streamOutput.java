@@ -0,0 +1,135 @@
+package output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// import structure classes needed
+import structure.FlatMaze;
+
+/**
+ streamOutput writes the same CSV file as createOutput, but appends each iteration to disk as soon as it is added
+ instead of keeping every iteration in memory until finalise(). Rows are formatted into a reused StringBuilder and
+ copied into a reused byte buffer in front of a FileChannel, so no Double objects are created, and memory use stays
+ the same however many iterations the solver runs.
+ To keep files small for long runs, it can record only every Nth iteration and/or only selected states.
+ The last iteration added is always recorded, so the file always ends with the final utilities.
+ */
+public class streamOutput implements traceOutput {
+    // size of the byte buffer in front of the file
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final StringBuilder line;
+    private final int every;
+    private final int[] states;
+    // the model of the last iteration added, and whether that iteration has been written yet
+    private FlatMaze lastModel;
+    private boolean lastWritten;
+    private int iteration;
+
+    public streamOutput(String fileName, FlatMaze model) {
+        this(fileName, model, 1, null);
+    }
+
+    /**
+     streamOutput(String fileName, FlatMaze model, int every, int[] states):
+     creates outputFiles/fileName_timestamp.csv and writes the header row.
+     Only every Nth iteration added is recorded (1 records all of them), and only the given states are recorded
+     (null records all of them, in the same column-major order as createOutput).
+     */
+    public streamOutput(String fileName, FlatMaze model, int every, int[] states) {
+        if (every < 1)
+            throw new IllegalArgumentException("Iterations must be sampled at least every 1 iteration.");
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy_hh-mm-aa");
+        this.fileName = fileName + "_" + dateFormat.format(new Date());
+        this.every = every;
+        this.states = states != null ? states : traceFiles.allStates(model);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.line = new StringBuilder();
+
+        try {
+            String filePath = new File("").getAbsolutePath();
+            this.channel = FileChannel.open(Paths.get(filePath, "outputFiles", this.fileName + ".csv"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // for each recorded state, adds a header "Wall: (c, r)" or "State: (c, r)", separated by commas
+        for (int state : this.states) {
+            traceFiles.appendHeader(line, state, model.getNumRow(), model.isWall(state));
+        }
+        line.append('\n');
+        write(line);
+    }
+
+    /**
+     add(FlatMaze model): records the current utilities of the model as the next iteration,
+     if it is one of the sampled iterations.
+     */
+    @Override
+    public void add(FlatMaze model) {
+        lastModel = model;
+        lastWritten = iteration % every == 0;
+        iteration++;
+
+        if (lastWritten)
+            writeRow(model);
+    }
+
+    private void writeRow(FlatMaze model) {
+        double[] utilities = model.getUtilities();
+
+        line.setLength(0);
+        for (int state : states) {
+            line.append(utilities[state]).append(',');
+        }
+        line.append('\n');
+        write(line);
+    }
+
+    private void write(CharSequence chars) {
+        try {
+            traceFiles.write(channel, buffer, chars);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        try {
+            traceFiles.flush(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     finalise(): records the last iteration added if it was not sampled, and closes the file.
+     */
+    @Override
+    public void finalise() {
+        if (lastModel != null && !lastWritten)
+            writeRow(lastModel);
+
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println();
+        System.out.println("Please see " + fileName + ".csv for the results :)");
+    }
+}
@@ -0,0 +1,59 @@
+package output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// import structure classes needed
+import structure.FlatMaze;
+
+/**
+ traceFiles holds what the trace writers (streamOutput, binaryOutput) and traceReader share: the list of all
+ states recorded by default, the header of a CSV column, and the copying of text through a reused byte buffer in
+ front of a FileChannel.
+ */
+class traceFiles {
+    /**
+     allStates(FlatMaze model): every state of the model, in the same column-major order as createOutput.
+     */
+    static int[] allStates(FlatMaze model) {
+        int[] states = new int[model.getNumStates()];
+        for (int state = 0; state < states.length; state++) {
+            states[state] = state;
+        }
+        return states;
+    }
+
+    /**
+     appendHeader(StringBuilder line, int state, int numRow, boolean wall):
+     appends the CSV header of a state's column, "Wall: (c, r)" or "State: (c, r)", followed by a comma.
+     */
+    static void appendHeader(StringBuilder line, int state, int numRow, boolean wall) {
+        int col = state / numRow;
+        int row = state % numRow;
+        line.append(wall ? "\"Wall: (" : "\"State: (").append(col).append(", ").append(row).append(")\",");
+    }
+
+    /**
+     write(FileChannel channel, ByteBuffer buffer, CharSequence chars):
+     copies the characters into the byte buffer, writing the buffer to the channel whenever it is full.
+     */
+    static void write(FileChannel channel, ByteBuffer buffer, CharSequence chars) throws IOException {
+        for (int i = 0; i < chars.length(); i++) {
+            if (!buffer.hasRemaining())
+                flush(channel, buffer);
+            buffer.put((byte) chars.charAt(i));
+        }
+    }
+
+    /**
+     flush(FileChannel channel, ByteBuffer buffer): writes everything in the buffer to the channel and clears it.
+     */
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,15 @@
+package output;
+
+import structure.FlatMaze;
+
+/**
+ traceOutput is implemented by the writers that record the utilities of a solver after every iteration
+ (streamOutput for CSV files, binaryOutput for binary trace files).
+ */
+public interface traceOutput {
+    // records the current utilities of the model as the next iteration
+    void add(FlatMaze model);
+
+    // writes anything still pending and closes the output file
+    void finalise();
+}
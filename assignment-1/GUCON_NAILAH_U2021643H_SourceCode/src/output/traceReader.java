@@ -0,0 +1,249 @@
+package output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// import structure classes needed
+import structure.CellAttribute;
+
+/**
+ traceReader memory-maps a binary trace file written by binaryOutput. Frames are read straight from the mapping
+ when they are asked for, so opening a trace is cheap however many iterations it holds, and any single iteration
+ (getFrame) or the history of any single state (getSeries) can be read without touching the rest of the file.
+ Frames are mapped in chunks of at most CHUNK_SIZE bytes, so traces larger than 2 GB can be read as well.
+ */
+public class traceReader implements AutoCloseable {
+    // upper bound on the size of a single mapping (a MappedByteBuffer can hold at most 2 GB)
+    private final static long CHUNK_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final int numCol, numRow, valueSize, numFrames;
+    private final int[] states;
+    // position of each maze state in a frame, or -1 when the state was not recorded
+    private final int[] stateIndex;
+    private final byte[] cellTypes;
+    private final long framesOffset;
+    private final int frameSize, framesPerChunk;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     traceReader(String fileName): opens outputFiles/fileName.bin.
+     */
+    public traceReader(String fileName) {
+        this(Paths.get(new File("").getAbsolutePath(), "outputFiles", fileName + ".bin"));
+    }
+
+    public traceReader(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 7 * 4))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.limit() < 7 * 4 || header.getInt() != binaryOutput.MAGIC)
+                throw new IllegalArgumentException(path + " is not a binary trace file.");
+            int version = header.getInt();
+            if (version != binaryOutput.VERSION)
+                throw new IllegalArgumentException(path + " has unsupported trace version " + version + ".");
+
+            this.numCol = header.getInt();
+            this.numRow = header.getInt();
+            this.valueSize = header.getInt();
+            this.numFrames = header.getInt();
+            int numRecordedStates = header.getInt();
+            int numStates = numCol * numRow;
+
+            this.framesOffset = binaryOutput.headerSize(numRecordedStates, numStates);
+            this.frameSize = 8 + numRecordedStates * valueSize;
+            if (channel.size() < framesOffset + (long) numFrames * frameSize)
+                throw new IllegalArgumentException(path + " is truncated, or was not finalised.");
+
+            ByteBuffer rest = channel.map(FileChannel.MapMode.READ_ONLY, 7 * 4, framesOffset - 7 * 4)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.states = new int[numRecordedStates];
+            this.stateIndex = new int[numStates];
+            Arrays.fill(stateIndex, -1);
+            for (int i = 0; i < numRecordedStates; i++) {
+                states[i] = rest.getInt();
+                stateIndex[states[i]] = i;
+            }
+            this.cellTypes = new byte[numStates];
+            rest.get(cellTypes);
+
+            this.framesPerChunk = (int) Math.max(1, CHUNK_SIZE / frameSize);
+            this.chunks = new MappedByteBuffer[(numFrames + framesPerChunk - 1) / framesPerChunk];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getNumCol() {
+        return numCol;
+    }
+
+    public int getNumRow() {
+        return numRow;
+    }
+
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    // returns the recorded states, in the order their utilities are stored in each frame
+    public int[] getStates() {
+        return states;
+    }
+
+    public byte[] getCellTypes() {
+        return cellTypes;
+    }
+
+    public boolean isWall(int state) {
+        return cellTypes[state] == CellAttribute.WALL.ordinal();
+    }
+
+    // returns the mapping holding the given frame, mapping it first if needed
+    private ByteBuffer chunkOf(int frame) {
+        if (frame < 0 || frame >= numFrames)
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + numFrames + " frames.");
+
+        int chunk = frame / framesPerChunk;
+        if (chunks[chunk] == null) {
+            long start = framesOffset + (long) chunk * framesPerChunk * frameSize;
+            int numChunkFrames = Math.min(framesPerChunk, numFrames - chunk * framesPerChunk);
+            try {
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) numChunkFrames * frameSize);
+                chunks[chunk].order(ByteOrder.LITTLE_ENDIAN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return chunks[chunk];
+    }
+
+    // returns the position of the given frame in its chunk
+    private int offsetOf(int frame) {
+        return (frame % framesPerChunk) * frameSize;
+    }
+
+    /**
+     getIteration(int frame): returns the solver iteration the given frame was recorded at
+     (frames are not consecutive iterations when the trace was sampled).
+     */
+    public long getIteration(int frame) {
+        return chunkOf(frame).getLong(offsetOf(frame));
+    }
+
+    /**
+     getUtility(int frame, int state): returns the utility of the given maze state in the given frame.
+     */
+    public double getUtility(int frame, int state) {
+        int index = indexOf(state);
+        ByteBuffer chunk = chunkOf(frame);
+        int offset = offsetOf(frame) + 8 + index * valueSize;
+        return valueSize == 8 ? chunk.getDouble(offset) : chunk.getFloat(offset);
+    }
+
+    /**
+     getFrame(int frame, double[] utilities): copies the utilities of every recorded state in the given frame into
+     utilities (allocated when null or too short) and returns it.
+     */
+    public double[] getFrame(int frame, double[] utilities) {
+        if (utilities == null || utilities.length < states.length)
+            utilities = new double[states.length];
+
+        ByteBuffer chunk = chunkOf(frame);
+        int offset = offsetOf(frame) + 8;
+        for (int i = 0; i < states.length; i++, offset += valueSize) {
+            utilities[i] = valueSize == 8 ? chunk.getDouble(offset) : chunk.getFloat(offset);
+        }
+        return utilities;
+    }
+
+    /**
+     getSeries(int state): returns the utility of the given maze state in every frame.
+     */
+    public double[] getSeries(int state) {
+        int index = indexOf(state);
+        double[] series = new double[numFrames];
+        for (int frame = 0; frame < numFrames; frame++) {
+            int offset = offsetOf(frame) + 8 + index * valueSize;
+            ByteBuffer chunk = chunkOf(frame);
+            series[frame] = valueSize == 8 ? chunk.getDouble(offset) : chunk.getFloat(offset);
+        }
+        return series;
+    }
+
+    private int indexOf(int state) {
+        if (state < 0 || state >= stateIndex.length || stateIndex[state] < 0)
+            throw new IllegalArgumentException("State " + state + " was not recorded in this trace.");
+        return stateIndex[state];
+    }
+
+    /**
+     exportCsv(String fileName): writes the trace as outputFiles/fileName.csv, in the same format as createOutput
+     and streamOutput (a header row of the recorded states, then one row of utilities per frame).
+     */
+    public void exportCsv(String fileName) {
+        StringBuilder line = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        double[] utilities = new double[states.length];
+
+        String filePath = new File("").getAbsolutePath();
+        try (FileChannel csv = FileChannel.open(Paths.get(filePath, "outputFiles", fileName + ".csv"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int state : states) {
+                traceFiles.appendHeader(line, state, numRow, isWall(state));
+            }
+            line.append('\n');
+            traceFiles.write(csv, buffer, line);
+
+            for (int frame = 0; frame < numFrames; frame++) {
+                getFrame(frame, utilities);
+                line.setLength(0);
+                for (double utility : utilities) {
+                    line.append(utility).append(',');
+                }
+                line.append('\n');
+                traceFiles.write(csv, buffer, line);
+            }
+
+            traceFiles.flush(csv, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     main(String[] args): exports the binary trace outputFiles/args[0].bin as outputFiles/args[0].csv.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: traceReader <trace file name, without .bin>");
+            return;
+        }
+
+        try (traceReader reader = new traceReader(args[0])) {
+            reader.exportCsv(args[0]);
+            System.out.printf("%d frames of %d states exported to %s.csv\n",
+                    reader.getNumFrames(), reader.getStates().length, args[0]);
+        }
+    }
+}
@@ -49,6 +49,13 @@ public class Cell extends Coordinates {
                 break;
         }
     }
+
+    // sets the cell type, and the utility to the reward of that type, as setCellAttribute(char) does
+    public void setCellAttribute(CellAttribute cellAttribute) {
+        this.cellAttribute = cellAttribute;
+        this.setUtility(cellAttribute.getReward());
+    }
+
     public double getUtility() {
         return utility;
     }
@@ -0,0 +1,41 @@
+package structure;
+
+/**
+ CellEdit is a change of the type of one cell of a maze, e.g. new CellEdit(3, 4, 'B') turns the cell at column 3,
+ row 4 brown. Edits are applied in batches with Maze.applyEdits and FlatMaze.applyEdits.
+ */
+public class CellEdit {
+    private final int col, row;
+    private final CellAttribute cellAttribute;
+
+    public CellEdit(int col, int row, CellAttribute cellAttribute) {
+        this.col = col;
+        this.row = row;
+        this.cellAttribute = cellAttribute;
+    }
+
+    // takes the cell type as it is written in maze files: G, B, X or W
+    public CellEdit(int col, int row, char type) {
+        this(col, row, attributeOf(type));
+    }
+
+    private static CellAttribute attributeOf(char type) {
+        for (CellAttribute attribute : CellAttribute.values()) {
+            if (attribute.getSymbol().charAt(0) == type)
+                return attribute;
+        }
+        throw new IllegalArgumentException("Unknown cell type: " + type);
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public CellAttribute getCellAttribute() {
+        return cellAttribute;
+    }
+}
@@ -1,7 +1,7 @@
 package structure;
 
 public class Const {
-    // cols and rows for Grid World
+    // default cols and rows for an empty Grid World; mazes loaded from a file take their size from the file
     public final static int NUM_COL = 6;
     public final static int NUM_ROW = 6;
 
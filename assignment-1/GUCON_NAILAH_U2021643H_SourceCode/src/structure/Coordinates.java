@@ -9,9 +9,9 @@ public class Coordinates {
      coordinates are in (col,row) format with the top left corner being (0,0).
 
      Coordinates(int col, int row): It checks if the column and row values are valid,
-     i.e. if they are both non-negative and if they are not greater than the maximum column
-     and row indices (which are defined in the Const class). If any of these checks fail, it
-     throws an IllegalArgumentException with an appropriate error message.
+     i.e. if they are both non-negative. If this check fails, it throws an IllegalArgumentException
+     with an appropriate error message. The upper bounds depend on the size of each Maze, so they are
+     checked against the maze instead (see isInside and getNeighbours).
 
      If all the checks pass, it sets the col and row instance variables of the Coordinate object
      to the values of the arguments.
@@ -19,10 +19,6 @@ public class Coordinates {
     public Coordinates(int col, int row) {
         if (col < 0 || row < 0)
             throw new IllegalArgumentException("Column and row values must be a positive integer.");
-        else if (col > Const.NUM_COL - 1)
-            throw new IllegalArgumentException("Column value is out of range.");
-        else if (row > Const.NUM_ROW - 1)
-            throw new IllegalArgumentException("Row value is out of range.");
         else {
             this.col = col;
             this.row = row;
@@ -37,45 +33,41 @@ public class Coordinates {
         return this.row;
     }
 
-    public Coordinates[] getNeighbours(int direction) {
-        // Creates a new array of Coordinate objects with a length of 3.
-        Coordinates[] coordinates = new Coordinates[3];
+    /**
+     OFFSETS: a 3D array of integers that represents the offset of the neighbouring cells in each direction.
+     first dimension: four cardinal directions (up, down, left, right),
+     second dimension: three types of neighbouring cells in that direction (forward, right angle left, right angle right),
+     third dimension: col and row offsets of the neighbouring cell
+     It is built once and shared, instead of being rebuilt on every neighbour lookup.
+     */
+    static final int[][][] OFFSETS = { { { 0, -1 }, { -1, 0 }, { +1, 0 } }, { { 0, +1 }, { +1, 0 }, { -1, 0 } },
+            { { -1, 0 }, { 0, +1 }, { 0, -1 } }, { { +1, 0 }, { 0, -1 }, { 0, +1 } } };
 
-        // Defines a 3D array of integers called offset that represents the offset of the neighboring cells in each direction.
-        // first dimension: four cardinal directions (up, down, left, right),
-        // second dimension: three types of neighboring cells in that direction (forward, right angle left, right angle right),
-        // third dimension: col and row offsets of the neighboring cell
-        int[][][] offset = { { { 0, -1 }, { -1, 0 }, { +1, 0 } }, { { 0, +1 }, { +1, 0 }, { -1, 0 } },
-                { { -1, 0 }, { 0, +1 }, { 0, -1 } }, { { +1, 0 }, { 0, -1 }, { 0, +1 } } };
+    // returns true if (col, row) lies inside a grid of numCol x numRow cells
+    static boolean isInside(int col, int row, int numCol, int numRow) {
+        return col >= 0 && row >= 0 && col < numCol && row < numRow;
+    }
 
-        // Attempt to create a new Coordinate object at the specified column and row offsets in the UP direction
-        // using the offset array.
-        // If the Coordinate object cannot be created (because the resulting col or row is out of range),
-        // the catch block sets coordinates[0] to the current Coordinate object (i.e., this).
-        try {
-            coordinates[0] = new Coordinates(this.col + offset[direction][0][0], this.row + offset[direction][0][1]);
-        } catch (IllegalArgumentException e) {
-            coordinates[0] = this;
-        }
+    /**
+     getNeighbours(int direction, int numCol, int numRow): returns the coordinates of the three possible outcomes
+     of moving in the given direction inside a grid of numCol x numRow cells.
+     */
+    public Coordinates[] getNeighbours(int direction, int numCol, int numRow) {
+        // Creates a new array of Coordinate objects with a length of 3.
+        Coordinates[] coordinates = new Coordinates[3];
 
-        // Attempt to create a new Coordinate object at the specified column and row offsets in the LEFT direction
-        // using the offset array.
-        // If the Coordinate object cannot be created (because the resulting col or row is out of range),
-        // the catch block sets coordinates[0] to the current Coordinate object (i.e., this).
-        try {
-            coordinates[1] = new Coordinates(this.col + offset[direction][1][0], this.row + offset[direction][1][1]);
-        } catch (IllegalArgumentException e) {
-            coordinates[1] = this;
-        }
+        // For each of the three possible outcomes (forward, right angle left, right angle right), create a new
+        // Coordinate object at the column and row offsets given by the OFFSETS table.
+        // If the resulting col or row is out of range, the neighbour is the current Coordinate object (i.e., this),
+        // as the agent bounces back from the edge of the grid.
+        for (int n = 0; n < coordinates.length; n++) {
+            int col = this.col + OFFSETS[direction][n][0];
+            int row = this.row + OFFSETS[direction][n][1];
 
-        // Attempt to create a new Coordinate object at the specified column and row offsets in the RIGHT direction
-        // using the offset array.
-        // If the Coordinate object cannot be created (because the resulting col or row is out of range),
-        // the catch block sets coordinates[0] to the current Coordinate object (i.e., this).
-        try {
-            coordinates[2] = new Coordinates(this.col + offset[direction][2][0], this.row + offset[direction][2][1]);
-        } catch (IllegalArgumentException e) {
-            coordinates[2] = this;
+            if (isInside(col, row, numCol, numRow))
+                coordinates[n] = new Coordinates(col, row);
+            else
+                coordinates[n] = this;
         }
 
         // returns the coordinates array of neighboring Coordinate objects
@@ -0,0 +1,472 @@
+package structure;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ FlatMaze is a compact MDP representation compiled from a Maze, used by the solvers in their inner loops.
+ Instead of a Cell[][] of heap objects, every state is an int index into primitive arrays:
+    utilities  - double[state], the current utility of each state
+    cellTypes  - byte[state], the CellAttribute ordinal of each state
+    rewards    - double[state], the reward of each state
+    policy     - byte[state], the action (direction) of each state
+    successors - int[state * 4 * 3 + direction * 3 + outcome], the state reached for each of the three outcomes
+                 (intended, right angle left, right angle right) of each of the four directions
+
+ States are numbered column-major (state = col * numRow + row), which is the same order the solvers have always
+ visited cells[c][r] in, so in-place sweeps over a FlatMaze produce exactly the same utilities and policies.
+ The rewards are those of the model's MdpConfig, whose probabilities and discount factor the solvers use as well.
+ */
+public class FlatMaze {
+    // three possible outcomes per action: intended direction, right angle left, right angle right
+    public static final int OUTCOMES = 3;
+    // number of successor entries stored for each state
+    public static final int SUCCESSORS_PER_STATE = Coordinates.ALL_DIRECTIONS * OUTCOMES;
+    // cell type of a wall, as stored in cellTypes
+    public static final byte WALL = (byte) CellAttribute.WALL.ordinal();
+
+    private final int numCol, numRow, numStates;
+    private int numNonWallStates;
+    private final byte[] cellTypes;
+    private final double[] rewards;
+    private final double[] utilities;
+    private final byte[] policy;
+    private final MdpConfig config;
+    private int[] successors;
+    // whether successors is shared with the Maze it was compiled from or with other FlatMazes (see withConfig),
+    // in which case it must be copied before editing
+    private boolean sharedSuccessors;
+    // reverse transition index, built on first use
+    private int[] predecessorOffsets, predecessors;
+    // successor table transposed to one row of states per direction and outcome, built on first use
+    private int[] successorsByOutcome;
+
+    /**
+     FlatMaze(Maze maze): compiles the cells of the given maze into primitive arrays.
+     Utilities and actions are copied from the cells, and the successor table is the maze's precomputed
+     transition index, so walls and edges bounce the agent back exactly as they do for the Cell grid.
+     The model has the maze's MdpConfig.
+     */
+    public FlatMaze(Maze maze) {
+        this.numCol = maze.getNumCol();
+        this.numRow = maze.getNumRow();
+        this.numStates = numCol * numRow;
+        this.cellTypes = new byte[numStates];
+        this.rewards = new double[numStates];
+        this.utilities = new double[numStates];
+        this.policy = new byte[numStates];
+        this.config = maze.getConfig();
+        this.successors = maze.getTransitions();
+        this.sharedSuccessors = true;
+
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                int state = index(c, r);
+                Cell cell = maze.getCell(new Coordinates(c, r));
+
+                cellTypes[state] = (byte) cell.getCellAttribute().ordinal();
+                rewards[state] = config.getReward(cell.getCellAttribute());
+                utilities[state] = cell.getUtility();
+                policy[state] = (byte) cell.getAction().getDirection();
+
+                if (!isWall(state))
+                    numNonWallStates++;
+            }
+        }
+    }
+
+    /**
+     FlatMaze(int numCol, int numRow, byte[] cellTypes): builds the model straight from the cell type (CellAttribute
+     ordinal) of every state, indexed by col * numRow + row, without a Maze. As for a newly loaded Maze, every
+     state starts with its reward as utility and UP as action. The model has the default MdpConfig.
+     */
+    public FlatMaze(int numCol, int numRow, byte[] cellTypes) {
+        this(numCol, numRow, cellTypes, MdpConfig.DEFAULT);
+    }
+
+    /**
+     FlatMaze(int numCol, int numRow, byte[] cellTypes, MdpConfig config): as above, with the given MdpConfig.
+     */
+    public FlatMaze(int numCol, int numRow, byte[] cellTypes, MdpConfig config) {
+        if (numCol <= 0 || numRow <= 0)
+            throw new IllegalArgumentException("Col and Row must be a positive integer.");
+        if (cellTypes.length != numCol * numRow)
+            throw new IllegalArgumentException("Expected " + numCol * numRow + " cell types, got " + cellTypes.length + ".");
+
+        this.numCol = numCol;
+        this.numRow = numRow;
+        this.numStates = numCol * numRow;
+        this.cellTypes = cellTypes;
+        this.rewards = new double[numStates];
+        this.utilities = new double[numStates];
+        this.policy = new byte[numStates];
+        this.config = config;
+        this.successors = buildTransitions(numCol, numRow, cellTypes);
+        this.reset();
+    }
+
+    // a new model of the same maze as other, sharing its transition index, with the given MdpConfig
+    private FlatMaze(FlatMaze other, MdpConfig config) {
+        this.numCol = other.numCol;
+        this.numRow = other.numRow;
+        this.numStates = other.numStates;
+        // cell types are edited in place by applyEdits, so each model has its own
+        this.cellTypes = other.cellTypes.clone();
+        this.rewards = new double[numStates];
+        this.utilities = new double[numStates];
+        this.policy = new byte[numStates];
+        this.config = config;
+        this.successors = other.successors;
+        this.sharedSuccessors = true;
+        other.sharedSuccessors = true;
+        // the reverse and transposed indices are replaced rather than changed when transitions change, so they can be
+        // shared as well
+        this.predecessorOffsets = other.predecessorOffsets;
+        this.predecessors = other.predecessors;
+        this.successorsByOutcome = other.successorsByOutcome;
+        this.reset();
+    }
+
+    // sets every reward from the config, every utility to its reward and every action to UP, and counts the non-walls
+    private void reset() {
+        CellAttribute[] attributes = CellAttribute.values();
+        numNonWallStates = 0;
+        for (int state = 0; state < numStates; state++) {
+            rewards[state] = config.getReward(attributes[cellTypes[state]]);
+            utilities[state] = rewards[state];
+            policy[state] = (byte) Action.UP.getDirection();
+
+            if (!isWall(state))
+                numNonWallStates++;
+        }
+    }
+
+    /**
+     withConfig(MdpConfig config): a new, unsolved model of the same maze with other parameters. The transition index
+     and the reverse and transposed transition indices do not depend on the parameters, so they are shared with this
+     model instead of being built again (applyEdits copies or rebuilds them first); the rewards, utilities and policy
+     are new, and start as in a newly loaded maze.
+     */
+    public FlatMaze withConfig(MdpConfig config) {
+        return new FlatMaze(this, config);
+    }
+
+    /**
+     coarsen(int factor): a smaller model of the same maze, in which every block of factor x factor cells is one cell,
+     for solving coarse-to-fine (see main.MultigridSolver). A block is only a wall if all of its cells are, so that
+     every path through the maze is still open in the coarse model. Otherwise it takes the cell type and reward of
+     its best non-wall cell, as the agent can head for that cell: with the mean reward of the block, the coarse
+     utilities fall far short of the fine ones wherever the agent can keep collecting the reward of one green cell.
+     One move in the coarse model stands for factor moves in this one, so its discount factor is discount^factor and
+     the reward is collected over factor moves: reward * (1 - discount^factor) / (1 - discount). A state that stays
+     in the same kind of cells then has about the same utility in both models.
+     As the rewards are not those of the config, the coarse model must not be edited.
+     */
+    public FlatMaze coarsen(int factor) {
+        if (factor < 2)
+            throw new IllegalArgumentException("Coarsening factor " + factor + " must be at least 2.");
+
+        int coarseCol = (numCol + factor - 1) / factor;
+        int coarseRow = (numRow + factor - 1) / factor;
+        // the best non-wall cell of every block, or -1 if all of its cells are walls
+        int[] best = new int[coarseCol * coarseRow];
+        Arrays.fill(best, -1);
+
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                int state = index(c, r);
+                int block = (c / factor) * coarseRow + r / factor;
+                if (!isWall(state) && (best[block] < 0 || rewards[state] > rewards[best[block]]))
+                    best[block] = state;
+            }
+        }
+
+        byte[] coarseTypes = new byte[best.length];
+        for (int block = 0; block < best.length; block++) {
+            coarseTypes[block] = best[block] < 0 ? WALL : cellTypes[best[block]];
+        }
+
+        float discountFactor = config.getDiscountFactor();
+        float coarseDiscountFactor = (float) Math.pow(discountFactor, factor);
+        FlatMaze coarse = new FlatMaze(coarseCol, coarseRow, coarseTypes, config.withDiscountFactor(coarseDiscountFactor));
+
+        // rewards collected over factor moves, starting as the utilities as in a newly loaded maze
+        double scale = (1 - coarseDiscountFactor) / (1 - discountFactor);
+        for (int block = 0; block < best.length; block++) {
+            if (coarse.isWall(block))
+                continue;
+            coarse.rewards[block] = rewards[best[block]] * scale;
+            coarse.utilities[block] = coarse.rewards[block];
+        }
+        return coarse;
+    }
+
+    /**
+     prolong(FlatMaze coarse, int factor): sets the utility and action of every non-wall state to those of its block
+     in a model made by coarsen(factor), as a warm start for solving this model.
+     */
+    public void prolong(FlatMaze coarse, int factor) {
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                int state = index(c, r);
+                int block = coarse.index(c / factor, r / factor);
+                if (isWall(state))
+                    continue;
+                utilities[state] = coarse.utilities[block];
+                policy[state] = coarse.policy[block];
+            }
+        }
+    }
+
+    /**
+     buildTransitions(int numCol, int numRow, byte[] cellTypes): builds the transition index of a maze from the cell
+     type of every state. For each cell, direction and outcome, the neighbouring cell is found from the Coordinates
+     offset table. If the neighbour is outside the maze or is a wall, the agent stays in the current cell instead.
+     */
+    static int[] buildTransitions(int numCol, int numRow, byte[] cellTypes) {
+        int[] transitions = new int[numCol * numRow * SUCCESSORS_PER_STATE];
+
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                buildTransitions(numCol, numRow, cellTypes, transitions, c, r);
+            }
+        }
+
+        return transitions;
+    }
+
+    // fills in the transition index entries of the cell at (c, r)
+    private static void buildTransitions(int numCol, int numRow, byte[] cellTypes, int[] transitions, int c, int r) {
+        int state = c * numRow + r;
+
+        for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+            for (int n = 0; n < OUTCOMES; n++) {
+                int col = c + Coordinates.OFFSETS[direction][n][0];
+                int row = r + Coordinates.OFFSETS[direction][n][1];
+
+                int next = state;
+                if (Coordinates.isInside(col, row, numCol, numRow) && cellTypes[col * numRow + row] != WALL)
+                    next = col * numRow + row;
+
+                transitions[state * SUCCESSORS_PER_STATE + direction * OUTCOMES + n] = next;
+            }
+        }
+    }
+
+    /**
+     applyEdits(List<CellEdit> edits): changes the types of the edited cells, updating only what depends on them:
+     their rewards, and the transitions of the edited cells and of their neighbours (whose moves into or out of an
+     edited cell change when it becomes or stops being a wall). The utilities and policy are kept as a warm start,
+     except that a cell that becomes a wall, or stops being one, starts from its reward as in a newly loaded maze.
+     Returns the states whose reward or transitions may have changed, which are the states an incremental solver
+     has to look at first (see main.IncrementalSolver).
+     */
+    public int[] applyEdits(List<CellEdit> edits) {
+        if (sharedSuccessors) {
+            // other models compiled from the same Maze share the transition index, so it is copied before editing
+            successors = successors.clone();
+            sharedSuccessors = false;
+        }
+
+        Set<Integer> affected = new LinkedHashSet<Integer>();
+        boolean wallsChanged = false;
+        for (CellEdit edit : edits) {
+            if (!Coordinates.isInside(edit.getCol(), edit.getRow(), numCol, numRow))
+                throw new IllegalArgumentException("Cell (" + edit.getCol() + ", " + edit.getRow()
+                        + ") is outside the " + numCol + "x" + numRow + " maze.");
+
+            int state = index(edit.getCol(), edit.getRow());
+            byte cellType = (byte) edit.getCellAttribute().ordinal();
+            if (cellTypes[state] == cellType)
+                continue;
+
+            boolean wasWall = isWall(state);
+            cellTypes[state] = cellType;
+            rewards[state] = config.getReward(edit.getCellAttribute());
+            affected.add(state);
+
+            if (wasWall != isWall(state)) {
+                wallsChanged = true;
+                utilities[state] = rewards[state];
+                numNonWallStates += wasWall ? 1 : -1;
+
+                // the neighbours' moves into this cell now bounce back, or no longer do
+                for (int direction = 0; direction < Coordinates.ALL_DIRECTIONS; direction++) {
+                    int col = edit.getCol() + Coordinates.OFFSETS[direction][0][0];
+                    int row = edit.getRow() + Coordinates.OFFSETS[direction][0][1];
+                    if (Coordinates.isInside(col, row, numCol, numRow))
+                        affected.add(index(col, row));
+                }
+            }
+        }
+
+        int[] affectedStates = new int[affected.size()];
+        int n = 0;
+        for (int state : affected) {
+            buildTransitions(numCol, numRow, cellTypes, successors, state / numRow, state % numRow);
+            affectedStates[n++] = state;
+        }
+
+        // the reverse and transposed transition indices are rebuilt on next use if any transition changed
+        if (wallsChanged) {
+            predecessorOffsets = null;
+            predecessors = null;
+            successorsByOutcome = null;
+        }
+
+        return affectedStates;
+    }
+
+    // returns the state index of the cell at (col, row)
+    public int index(int col, int row) {
+        return col * numRow + row;
+    }
+
+    public int getNumCol() {
+        return numCol;
+    }
+
+    public int getNumRow() {
+        return numRow;
+    }
+
+    public int getNumStates() {
+        return numStates;
+    }
+
+    public int getNumNonWallStates() {
+        return numNonWallStates;
+    }
+
+    public boolean isWall(int state) {
+        return cellTypes[state] == WALL;
+    }
+
+    public byte[] getCellTypes() {
+        return cellTypes;
+    }
+
+    public double[] getRewards() {
+        return rewards;
+    }
+
+    public double[] getUtilities() {
+        return utilities;
+    }
+
+    public byte[] getPolicy() {
+        return policy;
+    }
+
+    public MdpConfig getConfig() {
+        return config;
+    }
+
+    public int[] getSuccessors() {
+        return successors;
+    }
+
+    /**
+     getSuccessorsByOutcome(): the successor table transposed, indexed by
+     (direction * 3 + outcome) * numStates + state, so that the successors of consecutive states for one direction
+     and outcome are next to each other. This is the layout vectorised kernels read, a block of states at a
+     time (see main.BellmanKernel). It is built from the successor table the first time it is asked for.
+     */
+    public int[] getSuccessorsByOutcome() {
+        if (successorsByOutcome == null) {
+            int[] transposed = new int[successors.length];
+            for (int state = 0; state < numStates; state++) {
+                for (int k = 0; k < SUCCESSORS_PER_STATE; k++) {
+                    transposed[k * numStates + state] = successors[state * SUCCESSORS_PER_STATE + k];
+                }
+            }
+            successorsByOutcome = transposed;
+        }
+        return successorsByOutcome;
+    }
+
+    /**
+     getPredecessorOffsets() / getPredecessors(): reverse transition index in compressed form. The distinct
+     non-wall states that can reach state s in one move (including s itself when it can stay in place) are
+     predecessors[predecessorOffsets[s]] to predecessors[predecessorOffsets[s + 1] - 1].
+     The index is built from the successor table the first time it is asked for.
+     */
+    public int[] getPredecessorOffsets() {
+        if (predecessorOffsets == null)
+            buildPredecessors();
+        return predecessorOffsets;
+    }
+
+    public int[] getPredecessors() {
+        if (predecessors == null)
+            buildPredecessors();
+        return predecessors;
+    }
+
+    private void buildPredecessors() {
+        int[] offsets = new int[numStates + 1];
+        int[] distinct = new int[SUCCESSORS_PER_STATE];
+
+        // first pass counts the predecessors of every state, second pass fills them in
+        for (int pass = 0; pass < 2; pass++) {
+            int[] next = pass == 0 ? null : offsets.clone();
+            int[] reverse = pass == 0 ? null : new int[offsets[numStates]];
+
+            for (int state = 0; state < numStates; state++) {
+                if (isWall(state))
+                    continue;
+
+                int numDistinct = distinctSuccessors(state, distinct);
+                for (int n = 0; n < numDistinct; n++) {
+                    if (pass == 0)
+                        offsets[distinct[n] + 1]++;
+                    else
+                        reverse[next[distinct[n]]++] = state;
+                }
+            }
+
+            if (pass == 0) {
+                for (int s = 0; s < numStates; s++) {
+                    offsets[s + 1] += offsets[s];
+                }
+            } else {
+                this.predecessors = reverse;
+            }
+        }
+
+        this.predecessorOffsets = offsets;
+    }
+
+    // fills distinct with the distinct successor states of state and returns how many there are
+    private int distinctSuccessors(int state, int[] distinct) {
+        int numDistinct = 0;
+        for (int i = state * SUCCESSORS_PER_STATE; i < (state + 1) * SUCCESSORS_PER_STATE; i++) {
+            int successor = successors[i];
+            boolean seen = false;
+            for (int n = 0; n < numDistinct && !seen; n++) {
+                seen = distinct[n] == successor;
+            }
+            if (!seen)
+                distinct[numDistinct++] = successor;
+        }
+        return numDistinct;
+    }
+
+    /**
+     exportTo(Maze maze): writes the utilities and policy back into the cells of the maze it was compiled from,
+     so that Maze.print() and createOutput see the solver's current results.
+     */
+    public void exportTo(Maze maze) {
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                int state = index(c, r);
+                Cell cell = maze.getCell(new Coordinates(c, r));
+
+                cell.setUtility(utilities[state]);
+                cell.setAction(policy[state]);
+            }
+        }
+    }
+}
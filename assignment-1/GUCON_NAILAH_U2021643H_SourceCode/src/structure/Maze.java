@@ -1,21 +1,70 @@
 package structure;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.util.Scanner;
+import java.util.List;
 
 public class Maze {
     Cell[][] cells;
     int numCol, numRow;
+    // transition index: the state (col * numRow + row) reached for each outcome of each direction from each state,
+    // indexed by state * 4 * 3 + direction * 3 + outcome. Rebuilt by updateTransitions() when cell types change.
+    int[] transitions;
+    // rewards, transition probabilities and discount factor of the MDP, passed on to every FlatMaze compiled from it
+    final MdpConfig config;
 
+    /**
+     Maze(): Create an empty maze of the default size given in the Const class, with every cell white.
+     */
     public Maze() {
+        this(Const.NUM_COL, Const.NUM_ROW);
+    }
+
+    /**
+     Maze(int numCol, int numRow): Create an empty maze of numCol x numRow cells, with every cell white.
+     The size is carried by each instance, so mazes of different sizes can be used in the same program.
+     */
+    public Maze(int numCol, int numRow) {
+        this(numCol, numRow, MdpConfig.DEFAULT);
+    }
+
+    /**
+     Maze(int numCol, int numRow, MdpConfig config): as above, for an MDP with the given parameters.
+     */
+    public Maze(int numCol, int numRow, MdpConfig config) {
+        this.config = config;
+        this.initialise(numCol, numRow);
+        this.updateTransitions();
+    }
+
+    /**
+     Maze(String fileName): Create a new instance of the Maze class by loading a maze from a file.
+     The constructor takes a String argument fileName, which specifies the name of the file from which to load the maze
+     (a file in mazeEnvironments, any other path, or "-" for standard input, see MazeFile).
+     The number of columns and rows is inferred from the file, so the maze does not have to be square.
+     The rewards, transition probabilities and discount factor are those of MdpConfig.DEFAULT (the Const class).
+     */
+    public Maze(String fileName) {
+        this(fileName, MdpConfig.DEFAULT);
+    }
+
+    /**
+     Maze(String fileName, MdpConfig config): loads the maze from a file, for an MDP with the given parameters.
+     */
+    public Maze(String fileName, MdpConfig config) {
+        this.config = config;
+        // read the contents of the file and initialize the cells 2D array with the appropriate Cell objects
+        this.importMapFromFile(fileName);
+    }
+
+    /**
+     initialise(int numCol, int numRow): sets the size of the maze and creates a new white Cell for every position.
+     */
+    private void initialise(int numCol, int numRow) {
         // column and row value must be a positive integer
-        if (numCol < 0 || numRow < 0)
+        if (numCol <= 0 || numRow <= 0)
             throw new IllegalArgumentException("Col and Row must be a positive integer.");
 
-        this.numCol = Const.NUM_COL;
-        this.numRow = Const.NUM_ROW;
+        this.numCol = numCol;
+        this.numRow = numRow;
         this.cells = new Cell[this.numCol][this.numRow];
 
         // Initializes each Cell object by looping over each element of cells and creating
@@ -29,18 +78,6 @@ public class Maze {
         }
     }
 
-    /**
-     Maze(String fileName): Create a new instance of the Maze class by loading a maze from a file.
-     The constructor takes a String argument fileName, which specifies the name of the file from which to load the maze.
-     */
-    public Maze(String fileName) {
-        // calls the default Maze() constructor using this(), which initializes instance variables
-        // numCol, numRow, and cells with default values
-        this();
-        // read the contents of the file and initialize the cells 2D array with the appropriate Cell objects
-        this.importMapFromFile(fileName);
-    }
-
     /**
      getCell(Coordinate coordinate) :
      1. extracts the column and row values from the Coordinate object
@@ -53,56 +90,93 @@ public class Maze {
         return cells[c][r];
     }
 
+    public int getNumCol() {
+        return numCol;
+    }
+
+    public int getNumRow() {
+        return numRow;
+    }
+
+    public MdpConfig getConfig() {
+        return config;
+    }
+
     public Cell[] getNeighboursOfCell(Cell currCell) {
         // gets the action of the currCell
         // returns the direction in which the action (aka policy) recommends moving from the current cell
-        Action currAction = currCell.getAction();
-        // obtain an array of Coordinate objects representing the coordinates of neighboring cells in that direction
-        Coordinates[] neighbourCoordinates = currCell.getNeighbours(currAction.getDirection());
-
-        // checks each neighbor coordinate to see if it is a wall
-        // create an array of Cell objects of the same length as the neighbourCoordinates array.
-        Cell[] neighbourCells = new Cell[neighbourCoordinates.length];
+        return this.getNeighboursOfCell(currCell, currCell.getAction().getDirection());
+    }
 
-        for (int n = 0; n < neighbourCoordinates.length; n++) {
-            // // For each neighbor coordinate, get the corresponding Cell object
-            Cell neighbourCell = this.getCell(neighbourCoordinates[n]);
+    public Cell[] getNeighboursOfCell(Cell currCell, int direction) {
+        // create an array of Cell objects for the three neighbouring cells and fill it from the transition index
+        return this.getNeighboursOfCell(currCell, direction, new Cell[FlatMaze.OUTCOMES]);
+    }
 
-            // If the CellAttribute of the neighbourCell is WALL, set the neighbourCoordinates coordinate to the current
-            if (neighbourCell.getCellAttribute() == CellAttribute.WALL)
-                neighbourCoordinates[n] = (Coordinates) currCell;
+    /**
+     getNeighboursOfCell(Cell currCell, int direction, Cell[] neighbourCells):
+     fills the caller's neighbourCells array with the three neighbouring cells of currCell in the given direction,
+     looked up in the precomputed transition index. Nothing is allocated and nothing is thrown, so this is the
+     form to use inside solver loops. Walls and the edges of the maze bounce back to currCell.
+     */
+    public Cell[] getNeighboursOfCell(Cell currCell, int direction, Cell[] neighbourCells) {
+        int base = (currCell.getCol() * numRow + currCell.getRow()) * FlatMaze.SUCCESSORS_PER_STATE
+                + direction * FlatMaze.OUTCOMES;
 
-            // Otherwise, add the neighbourCoordinates to the neighbourCells array.
-            neighbourCells[n] = this.getCell(neighbourCoordinates[n]);
+        for (int n = 0; n < FlatMaze.OUTCOMES; n++) {
+            int state = transitions[base + n];
+            neighbourCells[n] = cells[state / numRow][state % numRow];
         }
 
-        // returns the neighbourCells array containing the neighboring cells of currCell
+        // returns the array of neighbouring cells.
         return neighbourCells;
     }
 
-    public Cell[] getNeighboursOfCell(Cell currCell, int direction) {
-        // gets the neighbouring coordinates of the current cell in the given direction
-        Coordinates[] neighbourCoordinates = currCell.getNeighbours(direction);
-
-        // create an array of Cell objects for the neighbouring cells,
-        // with the same length as the array of neighbouring coordinates
-        Cell[] neighbourCells = new Cell[neighbourCoordinates.length];
+    // returns the transition index of the maze, indexed by state * 4 * 3 + direction * 3 + outcome
+    public int[] getTransitions() {
+        return transitions;
+    }
 
-        // for loop iterates over the neighbouring coordinates and gets the corresponding Cell object from the Maze
-        for (int n = 0; n < neighbourCoordinates.length; n++) {
-            Cell neighbourCell = this.getCell(neighbourCoordinates[n]);
+    /**
+     updateTransitions(): rebuilds the transition index from the current cell types.
+     For each cell, direction and outcome, the neighbouring cell is found from the Coordinates offset table.
+     If the neighbour is outside the maze or is a wall, the agent stays in the current cell instead.
+     It is called once the maze has been loaded, and must be called again if any cell type is changed afterwards.
+     */
+    public void updateTransitions() {
+        byte[] cellTypes = new byte[numCol * numRow];
+        for (int c = 0; c < numCol; c++) {
+            for (int r = 0; r < numRow; r++) {
+                cellTypes[c * numRow + r] = (byte) cells[c][r].getCellAttribute().ordinal();
+            }
+        }
 
-            // If the neighbouring cell is a wall, replace the neighbouring coordinate with the current
-            // cell's coordinate, effectively treating the wall as a barrier
-            if (neighbourCell.getCellAttribute() == CellAttribute.WALL)
-                neighbourCoordinates[n] = (Coordinates) currCell;
+        this.transitions = FlatMaze.buildTransitions(numCol, numRow, cellTypes);
+    }
 
-            // adds the Cell object to the neighbourCells array
-            neighbourCells[n] = this.getCell(neighbourCoordinates[n]);
+    /**
+     applyEdits(List<CellEdit> edits): changes the types of the edited cells (resetting their utilities to their
+     rewards, as when a maze is loaded) and rebuilds the transition index.
+     Solvers work on a FlatMaze, whose applyEdits only updates the states around the edits; this keeps the Maze in step
+     with it, so that FlatMaze.exportTo and print() show the edited maze.
+     */
+    public void applyEdits(List<CellEdit> edits) {
+        for (CellEdit edit : edits) {
+            if (!Coordinates.isInside(edit.getCol(), edit.getRow(), numCol, numRow))
+                throw new IllegalArgumentException("Cell (" + edit.getCol() + ", " + edit.getRow()
+                        + ") is outside the " + numCol + "x" + numRow + " maze.");
+            setCellAttribute(cells[edit.getCol()][edit.getRow()], edit.getCellAttribute());
         }
 
-        // returns the array of neighbouring cells.
-        return neighbourCells;
+        // the transition index may be shared with FlatMazes compiled from this maze, so a new one is built
+        this.updateTransitions();
+    }
+
+    // sets the type of the cell, and its utility to the reward of that type in this maze's config (also used by
+    // MazeGenerator)
+    void setCellAttribute(Cell cell, CellAttribute cellAttribute) {
+        cell.setCellAttribute(cellAttribute);
+        cell.setUtility(config.getReward(cellAttribute));
     }
 
     /**
@@ -132,27 +206,25 @@ public class Maze {
         System.out.println();
     }
 
+    /**
+     importMapFromFile(String fileName): loads the maze from a file in the mazeEnvironments directory, from any other
+     path, or from standard input if fileName is "-". The file is parsed by MazeFile, so the number of rows and columns
+     is taken from the file, and a malformed or unreadable file throws instead of leaving the maze empty.
+     */
     public void importMapFromFile(String fileName) {
-        try {
-            // retrieves the absolute path of the current working directory
-            String filePath = new File("").getAbsolutePath();
-            // creates a Scanner object to read from the specified file path
-            Scanner s = new Scanner(new BufferedReader(new FileReader(filePath.concat("/mazeEnvironments/" + fileName))));
-
-            // iterates over each line of the file until there are no more lines
-            while (s.hasNext()) {
-                // iterate over each cell in the cells 2D array and set the corresponding cell type to the next character
-                for (int r = 0; r < this.numRow; r++) {
-                    for (int c = 0; c < this.numCol; c++) {
-                        char type = s.next().charAt(0);
-                        cells[c][r].setCellAttribute(type);
-                    }
-                }
+        MazeFile file = MazeFile.read(fileName);
+        byte[] cellTypes = file.getCellTypes();
+        CellAttribute[] attributes = CellAttribute.values();
+
+        this.initialise(file.getNumCol(), file.getNumRow());
+
+        // set the type of each cell to the type read from the file
+        for (int c = 0; c < this.numCol; c++) {
+            for (int r = 0; r < this.numRow; r++) {
+                setCellAttribute(cells[c][r], attributes[cellTypes[c * this.numRow + r]]);
             }
-            // closes the Scanner object
-            s.close();
-        } catch (Exception e) {
-            System.out.println(e);
         }
+        // the transition index is built from the cell types read from the file
+        this.transitions = FlatMaze.buildTransitions(this.numCol, this.numRow, cellTypes);
     }
 }
@@ -0,0 +1,151 @@
+package structure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ MazeFile reads a maze file straight into a byte[] of cell types (CellAttribute ordinals, column-major like FlatMaze),
+ without creating a String, token or Cell for any cell.
+ The file is memory-mapped and parsed in a single pass over its bytes. Each of the characters G, B, X and W is one
+ cell and each line is one row, so both the shipped format ("G B X W", whitespace-separated) and compact rows
+ ("GBXW"), or comma-separated rows, are recognised without any configuration. Empty lines are skipped.
+ Malformed input (any other character, rows of different lengths, an empty file) throws an IllegalArgumentException
+ naming the file and line, and a file that cannot be read throws an UncheckedIOException.
+ */
+public class MazeFile {
+    // CellAttribute ordinal of each cell character, or -1 for characters that are not cells
+    private final static byte[] CELL_TYPES = new byte[128];
+    // number of bytes parsed at a time
+    private final static int CHUNK_SIZE = 1 << 16;
+    static {
+        Arrays.fill(CELL_TYPES, (byte) -1);
+        for (CellAttribute attribute : CellAttribute.values()) {
+            CELL_TYPES[attribute.getSymbol().charAt(0)] = (byte) attribute.ordinal();
+        }
+    }
+
+    private final int numCol, numRow;
+    private final byte[] cellTypes;
+
+    private MazeFile(int numCol, int numRow, byte[] cellTypes) {
+        this.numCol = numCol;
+        this.numRow = numRow;
+        this.cellTypes = cellTypes;
+    }
+
+    /**
+     read(String source): reads a maze from
+        "-"           standard input
+        a file name   in the mazeEnvironments directory, e.g. "complicated-maze-48x48-1.txt", as before
+        any path      absolute, or relative to the current working directory
+     */
+    public static MazeFile read(String source) {
+        try {
+            if (source.equals("-"))
+                return parse(ByteBuffer.wrap(System.in.readAllBytes()), "standard input");
+
+            Path path = Paths.get(new File("").getAbsolutePath(), "mazeEnvironments").resolve(source);
+            if (!Files.isRegularFile(path))
+                path = Paths.get(source);
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Maze file " + path + " is larger than 2 GB.");
+                return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read maze " + source, e);
+        }
+    }
+
+    /**
+     parse(ByteBuffer data, String name): parses the maze in data, naming it name in error messages.
+     */
+    static MazeFile parse(ByteBuffer data, String name) {
+        int size = data.limit();
+        // cells in the order of the file (row-major); there cannot be more cells than bytes
+        byte[] rowMajor = new byte[size];
+        int numCells = 0, rowStart = 0, numCol = -1, numRow = 0;
+        int line = 1, lineStart = 0;
+
+        // the bytes are copied out of the buffer a chunk at a time, which is much faster than reading them one by one
+        byte[] chunk = new byte[Math.min(Math.max(size, 1), CHUNK_SIZE)];
+        int chunkStart = 0, chunkLength = 0;
+
+        for (int i = 0; i <= size; i++) {
+            if (i == chunkStart + chunkLength && i < size) {
+                chunkStart = i;
+                chunkLength = Math.min(chunk.length, size - i);
+                data.get(i, chunk, 0, chunkLength);
+            }
+            byte b = i < size ? chunk[i - chunkStart] : (byte) '\n';
+
+            if (b == '\n') {
+                // end of a line: a non-empty line is a row, and must have as many cells as the first row
+                int rowCells = numCells - rowStart;
+                if (rowCells > 0) {
+                    if (numCol < 0)
+                        numCol = rowCells;
+                    else if (rowCells != numCol)
+                        throw new IllegalArgumentException("Line " + line + " of " + name + " has " + rowCells
+                                + " cells, expected " + numCol + ".");
+                    numRow++;
+                    rowStart = numCells;
+                }
+                line++;
+                lineStart = i + 1;
+            } else if (b != ' ' && b != '\t' && b != '\r' && b != ',') {
+                byte type = b >= 0 ? CELL_TYPES[b] : -1;
+                if (type < 0)
+                    throw new IllegalArgumentException(String.format("Unexpected character '%s' at line %d, column %d of %s.",
+                            b >= ' ' ? String.valueOf((char) b) : String.format("\\x%02x", b & 0xff), line, i - lineStart + 1, name));
+                rowMajor[numCells++] = type;
+            }
+        }
+
+        if (numRow == 0)
+            throw new IllegalArgumentException("Maze file " + name + " is empty.");
+
+        // transposes the cells into column-major order
+        byte[] cellTypes = new byte[numCells];
+        for (int r = 0; r < numRow; r++) {
+            for (int c = 0; c < numCol; c++) {
+                cellTypes[c * numRow + r] = rowMajor[r * numCol + c];
+            }
+        }
+        return new MazeFile(numCol, numRow, cellTypes);
+    }
+
+    public int getNumCol() {
+        return numCol;
+    }
+
+    public int getNumRow() {
+        return numRow;
+    }
+
+    // returns the CellAttribute ordinal of every cell, indexed by col * numRow + row
+    public byte[] getCellTypes() {
+        return cellTypes;
+    }
+
+    /**
+     toFlatMaze(): compiles the maze straight into a FlatMaze, without creating a Maze or any Cell objects.
+     */
+    public FlatMaze toFlatMaze() {
+        return toFlatMaze(MdpConfig.DEFAULT);
+    }
+
+    // as toFlatMaze(), for an MDP with the given parameters
+    public FlatMaze toFlatMaze(MdpConfig config) {
+        return new FlatMaze(numCol, numRow, cellTypes.clone(), config);
+    }
+}
@@ -0,0 +1,274 @@
+package structure;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ MazeGenerator makes random mazes of any size, like random-maze-generator.ipynb: every cell is green, brown, a wall
+ or white independently of the others, with the given densities (by default a quarter each, as in the notebook).
+ The same size, densities and seed always give the same maze, whether it is written to a file or built in memory.
+ Cells are drawn row by row, four per random long: each 16 bits of it index a table of 65536 cell types filled in
+ proportion to the densities, so the densities are rounded to multiples of 1 / 65536.
+ write() streams the maze to a file in the format MazeFile reads, one row at a time through a fixed-size buffer, so
+ mazes of 5000 x 5000 cells and more are written without ever holding the grid or any String of it in memory.
+ toFlatMaze() builds the model for the solvers straight from the cell types, and toMaze() a Maze with its Cells.
+ A generator is immutable: the with...() methods return a new generator with one parameter changed.
+ */
+public final class MazeGenerator {
+    // bits of a random long used for each cell, and the size of the table of cell types they index
+    private final static int BITS_PER_CELL = 16;
+    private final static int TABLE_SIZE = 1 << BITS_PER_CELL;
+    // number of bytes written at a time
+    private final static int CHUNK_SIZE = 1 << 16;
+    // the densities of random-maze-generator.ipynb, indexed by CellAttribute ordinal
+    private final static float[] UNIFORM = { 0.25f, 0.25f, 0.25f, 0.25f };
+
+    private final int numCol, numRow;
+    private final long seed;
+    // relative density of each cell type, indexed by CellAttribute ordinal
+    private final float[] densities;
+    // the cell type (CellAttribute ordinal) for each value of BITS_PER_CELL random bits
+    private final byte[] table;
+
+    public MazeGenerator(int numCol, int numRow, long seed) {
+        this(numCol, numRow, seed, UNIFORM);
+    }
+
+    private MazeGenerator(int numCol, int numRow, long seed, float[] densities) {
+        // column and row value must be a positive integer
+        if (numCol <= 0 || numRow <= 0)
+            throw new IllegalArgumentException("Col and Row must be a positive integer.");
+        double total = 0;
+        for (float density : densities) {
+            if (!(density >= 0))
+                throw new IllegalArgumentException("Density " + density + " must be non-negative.");
+            total += density;
+        }
+        if (total <= 0)
+            throw new IllegalArgumentException("At least one density must be positive.");
+
+        this.numCol = numCol;
+        this.numRow = numRow;
+        this.seed = seed;
+        this.densities = densities;
+
+        // every cell type gets the entries up to its cumulative density
+        this.table = new byte[TABLE_SIZE];
+        double cumulative = 0;
+        int from = 0;
+        for (int type = 0; type < densities.length; type++) {
+            cumulative += densities[type];
+            int to = type == densities.length - 1 ? TABLE_SIZE : (int) Math.round(cumulative / total * TABLE_SIZE);
+            for (int i = from; i < to; i++) {
+                table[i] = (byte) type;
+            }
+            from = Math.max(from, to);
+        }
+    }
+
+    /**
+     withDensity(CellAttribute cellAttribute, float density): this generator with the density of one cell type
+     changed. Densities are relative: they are divided by their sum, so they do not have to add up to 1.
+     */
+    public MazeGenerator withDensity(CellAttribute cellAttribute, float density) {
+        float[] densities = this.densities.clone();
+        densities[cellAttribute.ordinal()] = density;
+        return new MazeGenerator(numCol, numRow, seed, densities);
+    }
+
+    /**
+     withSeed(long seed): this generator with the seed changed.
+     */
+    public MazeGenerator withSeed(long seed) {
+        return new MazeGenerator(numCol, numRow, seed, densities);
+    }
+
+    /**
+     generate(RowConsumer consumer): draws the maze row by row, from row 0 down, passing each row to the consumer as
+     the CellAttribute ordinals of its cells from column 0. The array is reused for every row.
+     */
+    private void generate(RowConsumer consumer) {
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[] row = new byte[numCol];
+        for (int r = 0; r < numRow; r++) {
+            long bits = 0;
+            for (int c = 0; c < numCol; c++) {
+                // a new random long for every four cells, starting afresh in every row
+                if ((c & 3) == 0)
+                    bits = random.nextLong();
+                row[c] = table[(int) (bits & (TABLE_SIZE - 1))];
+                bits >>>= BITS_PER_CELL;
+            }
+            consumer.accept(r, row);
+        }
+    }
+
+    private interface RowConsumer {
+        void accept(int r, byte[] row);
+    }
+
+    /**
+     write(String fileName, boolean compact): writes the maze to a file, or to standard output if fileName is "-".
+     The cells of a row are separated by spaces as in the shipped maze files, or written without separators if
+     compact is true ("GBXW"), which MazeFile reads as well and which is half the size.
+     */
+    public void write(String fileName, boolean compact) {
+        try {
+            if (fileName.equals("-")) {
+                write(System.out, compact);
+                System.out.flush();
+                return;
+            }
+            try (OutputStream out = Files.newOutputStream(Paths.get(fileName))) {
+                write(out, compact);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write maze " + fileName, e);
+        }
+    }
+
+    /**
+     write(OutputStream out, boolean compact): writes the maze to the stream, as write(String, boolean) does, through
+     a buffer of CHUNK_SIZE bytes. The stream is not closed.
+     */
+    public void write(OutputStream out, boolean compact) throws IOException {
+        byte[] symbols = new byte[CellAttribute.values().length];
+        for (CellAttribute attribute : CellAttribute.values()) {
+            symbols[attribute.ordinal()] = (byte) attribute.getSymbol().charAt(0);
+        }
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int[] length = { 0 };
+
+        try {
+            generate((r, row) -> {
+                for (int c = 0; c < numCol; c++) {
+                    // every cell takes at most two bytes, its symbol and a space or the end of the line
+                    if (length[0] > CHUNK_SIZE - 2)
+                        length[0] = flush(out, chunk, length[0]);
+                    chunk[length[0]++] = symbols[row[c]];
+                    if (!compact && c < numCol - 1)
+                        chunk[length[0]++] = ' ';
+                }
+                chunk[length[0]++] = '\n';
+            });
+            flush(out, chunk, length[0]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // writes the first length bytes of the chunk, and returns the new length of the chunk, 0
+    private static int flush(OutputStream out, byte[] chunk, int length) {
+        try {
+            out.write(chunk, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return 0;
+    }
+
+    /**
+     getCellTypes(): the CellAttribute ordinal of every cell, indexed by col * numRow + row like MazeFile and FlatMaze.
+     */
+    public byte[] getCellTypes() {
+        byte[] cellTypes = new byte[Math.multiplyExact(numCol, numRow)];
+        generate((r, row) -> {
+            for (int c = 0; c < numCol; c++) {
+                cellTypes[c * numRow + r] = row[c];
+            }
+        });
+        return cellTypes;
+    }
+
+    /**
+     toFlatMaze(MdpConfig config): the maze as a FlatMaze, built straight from the cell types without creating a Maze
+     or any Cell objects.
+     */
+    public FlatMaze toFlatMaze(MdpConfig config) {
+        return new FlatMaze(numCol, numRow, getCellTypes(), config);
+    }
+
+    /**
+     toMaze(MdpConfig config): the maze as a Maze, with a Cell object for every cell.
+     */
+    public Maze toMaze(MdpConfig config) {
+        Maze maze = new Maze(numCol, numRow, config);
+        CellAttribute[] attributes = CellAttribute.values();
+        generate((r, row) -> {
+            for (int c = 0; c < numCol; c++) {
+                maze.setCellAttribute(maze.cells[c][r], attributes[row[c]]);
+            }
+        });
+        // the cell types have changed, so the transition index has to be rebuilt
+        maze.updateTransitions();
+        return maze;
+    }
+
+    public int getNumCol() {
+        return numCol;
+    }
+
+    public int getNumRow() {
+        return numRow;
+    }
+
+    /**
+     main(String[] args): writes a random maze, e.g. "java structure.MazeGenerator 5000x5000 big-5000.txt":
+        COLSxROWS                the size of the maze
+        fileName                 the file to write, or "-" for standard output
+     preceded by any of:
+        --seed=N                 the seed (default 4046)
+        --densities=G,B,X,W      the relative densities of green, brown, wall and white cells (default 1,1,1,1)
+        --compact                write rows without spaces between the cells
+     */
+    public static void main(String[] args) {
+        long seed = 4046;
+        float[] densities = null;
+        boolean compact = false;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            String[] option = args[first].substring(2).split("=", 2);
+            switch (option[0]) {
+                case "seed":
+                    seed = Long.parseLong(option[1]);
+                    break;
+                case "densities":
+                    String[] values = option[1].split(",");
+                    if (values.length != 4)
+                        throw new IllegalArgumentException("--densities needs four values: G,B,X,W.");
+                    densities = new float[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        densities[i] = Float.parseFloat(values[i].trim());
+                    }
+                    break;
+                case "compact":
+                    compact = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[first]);
+            }
+        }
+        if (args.length - first != 2)
+            throw new IllegalArgumentException("Usage: MazeGenerator [--seed=N] [--densities=G,B,X,W] [--compact] "
+                    + "COLSxROWS fileName");
+
+        String[] size = args[first].split("x");
+        MazeGenerator generator = new MazeGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]), seed);
+        if (densities != null) {
+            generator = generator.withDensity(CellAttribute.GREEN, densities[0])
+                    .withDensity(CellAttribute.BROWN, densities[1])
+                    .withDensity(CellAttribute.WALL, densities[2])
+                    .withDensity(CellAttribute.WHITE, densities[3]);
+        }
+
+        long start = System.nanoTime();
+        generator.write(args[first + 1], compact);
+        if (!args[first + 1].equals("-"))
+            System.out.printf("Wrote a %dx%d maze to %s in %.3f ms\n", generator.getNumCol(), generator.getNumRow(),
+                    args[first + 1], (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,111 @@
+package structure;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ MdpConfig holds the parameters of the MDP that are not part of the maze itself: the reward of each cell type, the
+ probabilities of the three outcomes of an action and the discount factor. A Maze or FlatMaze is built for one
+ MdpConfig, and the solvers read the parameters from the model they solve, so mazes with different parameters can
+ be solved at the same time (see main.ParameterSweep).
+ A config is immutable: the with...() methods return a new config with one group of parameters changed.
+ The parameters are floats, as in the Const class, so DEFAULT gives exactly the same results as Const did.
+ */
+public final class MdpConfig {
+    // the parameters given in the Const class
+    public final static MdpConfig DEFAULT = new MdpConfig(
+            new float[] { Const.REWARD_WHITESQUARE, Const.REWARD_GREENSQUARE, Const.REWARD_BROWNSQUARE, Const.REWARD_WALL },
+            Const.PROBABILITY_UP, Const.PROBABILITY_LEFT, Const.PROBABILITY_RIGHT, Const.DISCOUNT_FACTOR);
+
+    // reward of each cell type, indexed by CellAttribute ordinal
+    private final float[] rewards;
+    private final float probabilityUp, probabilityLeft, probabilityRight;
+    private final float discountFactor;
+
+    private MdpConfig(float[] rewards, float probabilityUp, float probabilityLeft, float probabilityRight,
+                      float discountFactor) {
+        // the probabilities must be a distribution over the three outcomes
+        if (probabilityUp < 0 || probabilityLeft < 0 || probabilityRight < 0
+                || Math.abs(probabilityUp + probabilityLeft + probabilityRight - 1) > 1e-6)
+            throw new IllegalArgumentException("Probabilities " + probabilityUp + ", " + probabilityLeft + ", "
+                    + probabilityRight + " must be non-negative and add up to 1.");
+        // value iteration only converges with a discount factor below 1
+        if (!(discountFactor > 0 && discountFactor < 1))
+            throw new IllegalArgumentException("Discount factor " + discountFactor + " must be between 0 and 1.");
+
+        this.rewards = rewards;
+        this.probabilityUp = probabilityUp;
+        this.probabilityLeft = probabilityLeft;
+        this.probabilityRight = probabilityRight;
+        this.discountFactor = discountFactor;
+    }
+
+    /**
+     withReward(CellAttribute cellAttribute, float reward): this config with the reward of one cell type changed.
+     */
+    public MdpConfig withReward(CellAttribute cellAttribute, float reward) {
+        float[] rewards = this.rewards.clone();
+        rewards[cellAttribute.ordinal()] = reward;
+        return new MdpConfig(rewards, probabilityUp, probabilityLeft, probabilityRight, discountFactor);
+    }
+
+    /**
+     withProbabilities(float up, float left, float right): this config with the probabilities of the intended
+     direction and of moving at a right angle to the left and to the right changed. They must add up to 1.
+     */
+    public MdpConfig withProbabilities(float up, float left, float right) {
+        return new MdpConfig(rewards, up, left, right, discountFactor);
+    }
+
+    /**
+     withDiscountFactor(float discountFactor): this config with the discount factor changed.
+     */
+    public MdpConfig withDiscountFactor(float discountFactor) {
+        return new MdpConfig(rewards, probabilityUp, probabilityLeft, probabilityRight, discountFactor);
+    }
+
+    public float getReward(CellAttribute cellAttribute) {
+        return rewards[cellAttribute.ordinal()];
+    }
+
+    public float getProbabilityUp() {
+        return probabilityUp;
+    }
+
+    public float getProbabilityLeft() {
+        return probabilityLeft;
+    }
+
+    public float getProbabilityRight() {
+        return probabilityRight;
+    }
+
+    public float getDiscountFactor() {
+        return discountFactor;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MdpConfig))
+            return false;
+        MdpConfig config = (MdpConfig) other;
+        return Arrays.equals(rewards, config.rewards) && probabilityUp == config.probabilityUp
+                && probabilityLeft == config.probabilityLeft && probabilityRight == config.probabilityRight
+                && discountFactor == config.discountFactor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(rewards), probabilityUp, probabilityLeft, probabilityRight, discountFactor);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("MdpConfig(");
+        for (CellAttribute cellAttribute : CellAttribute.values()) {
+            string.append(cellAttribute).append('=').append(getReward(cellAttribute)).append(", ");
+        }
+        return string.append("probabilities=").append(probabilityUp).append('/').append(probabilityLeft).append('/')
+                .append(probabilityRight).append(", discount=").append(discountFactor).append(')').toString();
+    }
+}
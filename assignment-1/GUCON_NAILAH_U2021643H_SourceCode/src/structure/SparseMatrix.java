@@ -0,0 +1,75 @@
+package structure;
+
+/**
+ SparseMatrix is a square matrix in compressed sparse row (CSR) format, stored in primitive arrays:
+ the non-zero entries of row i are values[rowOffsets[i]] to values[rowOffsets[i + 1] - 1],
+ in the columns columns[rowOffsets[i]] to columns[rowOffsets[i + 1] - 1].
+ The matrix is filled one row at a time with add(column, value) followed by endRow().
+ */
+public class SparseMatrix {
+    private final int size;
+    private final int[] rowOffsets;
+    private final int[] columns;
+    private final double[] values;
+    // number of rows and entries added so far
+    private int numRows, numEntries;
+
+    /**
+     SparseMatrix(int size, int maxEntries): creates an empty size x size matrix with room for maxEntries non-zeros.
+     */
+    public SparseMatrix(int size, int maxEntries) {
+        this.size = size;
+        this.rowOffsets = new int[size + 1];
+        this.columns = new int[maxEntries];
+        this.values = new double[maxEntries];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     add(int column, double value): adds value to the entry in the given column of the current row.
+     Adding to a column that already has an entry in this row sums the two values.
+     */
+    public void add(int column, double value) {
+        for (int i = rowOffsets[numRows]; i < numEntries; i++) {
+            if (columns[i] == column) {
+                values[i] += value;
+                return;
+            }
+        }
+
+        columns[numEntries] = column;
+        values[numEntries] = value;
+        numEntries++;
+    }
+
+    // finishes the current row and moves on to the next one
+    public void endRow() {
+        numRows++;
+        rowOffsets[numRows] = numEntries;
+    }
+
+    // returns the entry on the diagonal of the given row, or 0 if the row has none
+    public double getDiagonal(int row) {
+        for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+            if (columns[i] == row)
+                return values[i];
+        }
+        return 0;
+    }
+
+    /**
+     multiply(double[] x, double[] y): computes y = A * x.
+     */
+    public void multiply(double[] x, double[] y) {
+        for (int row = 0; row < size; row++) {
+            double sum = 0;
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                sum += values[i] * x[columns[i]];
+            }
+            y[row] = sum;
+        }
+    }
+}
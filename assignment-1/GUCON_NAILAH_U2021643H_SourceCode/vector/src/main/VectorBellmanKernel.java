@@ -0,0 +1,249 @@
+package main;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import structure.Coordinates;
+import structure.FlatMaze;
+import structure.MdpConfig;
+
+/**
+ VectorBellmanKernel backs up LANES consecutive states at a time (4 with AVX2, 8 with AVX-512), one state per lane.
+ Each outcome of each action moves the agent to the neighbour in one of the four directions, or keeps it in place, so
+ the kernel first finds, for every lane, the utility of its up, down, left and right neighbours: the utilities one
+ state before and after the block (up and down) and numRow states before and after it (left and right), loaded as
+ contiguous vectors, with the lane's own utility instead where the move bounces back off a wall or the edge (a mask
+ per direction, built from FlatMaze's transposed successor table, so no gather is needed).
+ The sub-utility of each action is then weighted and summed exactly as ValueIteration.calculateUtility does (same
+ operations in the same order, so every lane's sub-utility is bit-for-bit the scalar one), and the best direction so
+ far is kept lane-wise with a strict greater-than, so ties go to the first direction as in the scalar kernel. The
+ directions that were better than the ones before them are kept as mask bits, from which the action of each lane is
+ written to the policy.
+ Wall lanes are masked out and blocks of only walls are skipped. The first and last columns, whose left or right
+ neighbours are outside the arrays, are backed up by the scalar code.
+ The Stencil of a model (its wall mask and bounce masks) is built on its first sweep and kept until
+ its walls change, which gives the model a new transposed successor table (see FlatMaze.applyEdits).
+ Loaded by BellmanKernel.create("vector"); needs --add-modules jdk.incubator.vector.
+ */
+final class VectorBellmanKernel implements BellmanKernel {
+    private final static VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private final static int LANES = SPECIES.length();
+
+    // the stencil of every model the kernel has backed up; weak, so that solved models can still be collected, and
+    // synchronized, as models can be solved on several threads at once (see ParameterSweep)
+    private final Map<FlatMaze, Stencil> stencils = Collections.synchronizedMap(new WeakHashMap<FlatMaze, Stencil>());
+
+    @Override
+    public String getName() {
+        return "vector (" + LANES + " x double)";
+    }
+
+    @Override
+    public double sweep(FlatMaze model) {
+        Stencil stencil = stencil(model);
+        int numRow = model.getNumRow(), numStates = model.getNumStates();
+        double[] utilities = model.getUtilities();
+        double[] rewards = model.getRewards();
+        byte[] policy = model.getPolicy();
+        double discount = model.getConfig().getDiscountFactor();
+        double maxChangeInUtility = 0;
+        DoubleVector maxChange = DoubleVector.zero(SPECIES);
+
+        // the first column
+        int state = 0;
+        for (; state < numRow; state++) {
+            if (!model.isWall(state))
+                maxChangeInUtility = Math.max(maxChangeInUtility, ValueIteration.calculateUtility(model, state));
+        }
+
+        for (; state + LANES + numRow <= numStates; state += LANES) {
+            VectorMask<Double> open = VectorMask.fromArray(SPECIES, stencil.open, state);
+            if (!open.anyTrue())
+                continue;
+
+            DoubleVector self = DoubleVector.fromArray(SPECIES, utilities, state);
+            DoubleVector up = stencil.neighbour(state, Coordinates.UP, -1, self);
+            DoubleVector down = stencil.neighbour(state, Coordinates.DOWN, 1, self);
+            DoubleVector left = stencil.neighbour(state, Coordinates.LEFT, -numRow, self);
+            DoubleVector right = stencil.neighbour(state, Coordinates.RIGHT, numRow, self);
+
+            // the outcomes of each direction are the intended one and the two at right angles (see Coordinates.OFFSETS)
+            DoubleVector best = stencil.subUtility(up, left, right);
+            DoubleVector subUtility = stencil.subUtility(down, right, left);
+            VectorMask<Double> betterDown = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterDown);
+            subUtility = stencil.subUtility(left, down, up);
+            VectorMask<Double> betterLeft = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterLeft);
+            subUtility = stencil.subUtility(right, up, down);
+            VectorMask<Double> betterRight = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterRight);
+
+            // reward + discount_factor * max(sub-utilities), as in ValueIteration.calculateUtility
+            DoubleVector newUtility = DoubleVector.fromArray(SPECIES, rewards, state).add(best.mul(discount));
+            DoubleVector change = newUtility.sub(self).abs();
+            maxChange = maxChange.max(DoubleVector.zero(SPECIES).blend(change, open));
+
+            newUtility.intoArray(utilities, state, open);
+            setPolicy(policy, state, open.toLong(), betterDown.toLong(), betterLeft.toLong(), betterRight.toLong());
+        }
+
+        // the rest of the last columns
+        maxChangeInUtility = Math.max(maxChangeInUtility, maxChange.reduceLanes(VectorOperators.MAX));
+        for (; state < numStates; state++) {
+            if (!model.isWall(state))
+                maxChangeInUtility = Math.max(maxChangeInUtility, ValueIteration.calculateUtility(model, state));
+        }
+        return maxChangeInUtility;
+    }
+
+    @Override
+    public boolean improvePolicy(FlatMaze model) {
+        Stencil stencil = stencil(model);
+        int numRow = model.getNumRow(), numStates = model.getNumStates();
+        double[] utilities = model.getUtilities();
+        byte[] policy = model.getPolicy();
+        boolean changeOrNot = false;
+
+        // the first column
+        int state = 0;
+        for (; state < numRow; state++) {
+            if (!model.isWall(state) && PolicyIteration.policyImprovement(model, state))
+                changeOrNot = true;
+        }
+
+        for (; state + LANES + numRow <= numStates; state += LANES) {
+            VectorMask<Double> open = VectorMask.fromArray(SPECIES, stencil.open, state);
+            if (!open.anyTrue())
+                continue;
+
+            DoubleVector self = DoubleVector.fromArray(SPECIES, utilities, state);
+            DoubleVector up = stencil.neighbour(state, Coordinates.UP, -1, self);
+            DoubleVector down = stencil.neighbour(state, Coordinates.DOWN, 1, self);
+            DoubleVector left = stencil.neighbour(state, Coordinates.LEFT, -numRow, self);
+            DoubleVector right = stencil.neighbour(state, Coordinates.RIGHT, numRow, self);
+
+            // the lanes whose current action is down, left or right, so that the sub-utility of the current policy is
+            // kept as well
+            long currentDown = 0, currentLeft = 0, currentRight = 0;
+            for (int lane = 0; lane < LANES; lane++) {
+                switch (policy[state + lane]) {
+                    case Coordinates.DOWN: currentDown |= 1L << lane; break;
+                    case Coordinates.LEFT: currentLeft |= 1L << lane; break;
+                    case Coordinates.RIGHT: currentRight |= 1L << lane; break;
+                }
+            }
+
+            DoubleVector best = stencil.subUtility(up, left, right);
+            DoubleVector currentSubUtility = best;
+            DoubleVector subUtility = stencil.subUtility(down, right, left);
+            VectorMask<Double> betterDown = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterDown);
+            currentSubUtility = currentSubUtility.blend(subUtility, VectorMask.fromLong(SPECIES, currentDown));
+            subUtility = stencil.subUtility(left, down, up);
+            VectorMask<Double> betterLeft = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterLeft);
+            currentSubUtility = currentSubUtility.blend(subUtility, VectorMask.fromLong(SPECIES, currentLeft));
+            subUtility = stencil.subUtility(right, up, down);
+            VectorMask<Double> betterRight = subUtility.compare(VectorOperators.GT, best);
+            best = best.blend(subUtility, betterRight);
+            currentSubUtility = currentSubUtility.blend(subUtility, VectorMask.fromLong(SPECIES, currentRight));
+
+            // as in PolicyIteration.policyImprovement, the action only changes if the best direction is strictly better
+            VectorMask<Double> improved = best.compare(VectorOperators.GT, currentSubUtility).and(open);
+            if (improved.anyTrue()) {
+                setPolicy(policy, state, improved.toLong(), betterDown.toLong(), betterLeft.toLong(), betterRight.toLong());
+                changeOrNot = true;
+            }
+        }
+
+        // the rest of the last columns
+        for (; state < numStates; state++) {
+            if (!model.isWall(state) && PolicyIteration.policyImprovement(model, state))
+                changeOrNot = true;
+        }
+        return changeOrNot;
+    }
+
+    /**
+     setPolicy(byte[] policy, int state, long lanes, long down, long left, long right): sets the action of every lane
+     whose bit is set in lanes to its best direction, given as the bits of the lanes where down, left and right were
+     better than the directions before them: the last of these that was better, or up if none was.
+     */
+    private static void setPolicy(byte[] policy, int state, long lanes, long down, long left, long right) {
+        for (; lanes != 0; lanes &= lanes - 1) {
+            int lane = Long.numberOfTrailingZeros(lanes);
+            long bit = 1L << lane;
+            policy[state + lane] = (byte) ((right & bit) != 0 ? Coordinates.RIGHT : (left & bit) != 0 ? Coordinates.LEFT
+                    : (down & bit) != 0 ? Coordinates.DOWN : Coordinates.UP);
+        }
+    }
+
+    // the stencil of the model, built again if its walls have changed since it was built
+    private Stencil stencil(FlatMaze model) {
+        Stencil stencil = stencils.get(model);
+        if (stencil == null || stencil.successorsByOutcome != model.getSuccessorsByOutcome()) {
+            stencil = new Stencil(model);
+            stencils.put(model, stencil);
+        }
+        return stencil;
+    }
+
+    /**
+     Stencil holds the arrays and parameters of the model that a block of states is backed up from.
+     */
+    private static final class Stencil {
+        // whether each state is not a wall, as a mask can be loaded from a boolean[]
+        private final boolean[] open;
+        // moves[direction][state]: whether the intended outcome of the direction leaves the state, rather than
+        // bouncing back off a wall or the edge
+        private final boolean[][] moves;
+        private final double[] utilities;
+        private final int[] successorsByOutcome;
+        private final double probabilityUp, probabilityLeft, probabilityRight;
+
+        private Stencil(FlatMaze model) {
+            MdpConfig config = model.getConfig();
+            int numStates = model.getNumStates();
+            this.utilities = model.getUtilities();
+            this.successorsByOutcome = model.getSuccessorsByOutcome();
+            this.probabilityUp = config.getProbabilityUp();
+            this.probabilityLeft = config.getProbabilityLeft();
+            this.probabilityRight = config.getProbabilityRight();
+
+            this.open = new boolean[numStates];
+            for (int state = 0; state < numStates; state++) {
+                open[state] = !model.isWall(state);
+            }
+            this.moves = new boolean[Coordinates.ALL_DIRECTIONS][numStates];
+            for (int direction = 0; direction < moves.length; direction++) {
+                int intended = direction * FlatMaze.OUTCOMES * numStates;
+                for (int state = 0; state < numStates; state++) {
+                    moves[direction][state] = successorsByOutcome[intended + state] != state;
+                }
+            }
+        }
+
+        /**
+         neighbour(int state, int direction, int offset, DoubleVector self): the utility of the state offset states
+         away from each of the LANES states starting at state, which is the neighbour in the direction, or the lane's
+         own utility (self) where the intended outcome of the direction bounces back.
+         */
+        private DoubleVector neighbour(int state, int direction, int offset, DoubleVector self) {
+            return self.blend(DoubleVector.fromArray(SPECIES, utilities, state + offset),
+                    VectorMask.fromArray(SPECIES, moves[direction], state));
+        }
+
+        // the expected utility of an action, from the utilities of its three outcomes
+        private DoubleVector subUtility(DoubleVector intended, DoubleVector rightAngleLeft, DoubleVector rightAngleRight) {
+            return intended.mul(probabilityUp).add(rightAngleLeft.mul(probabilityLeft))
+                    .add(rightAngleRight.mul(probabilityRight));
+        }
+    }
+}
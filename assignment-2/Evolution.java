@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ Evolution simulates a population of players of the Tournament's strategies with discrete replicator dynamics:
+ every generation, each individual plays matchesPerIndividual matches (--matches) against two other individuals
+ of the population (which is shuffled and cut into groups of three that many times), and the share of every strategy then
+ grows or shrinks in proportion to its mean payoff per round relative to that of the whole population:
+    count'(i) = population * count(i) * payoff(i) / sum over j of count(j) * payoff(j)
+ rounded to whole individuals by largest remainder, so the population stays the same size. A strategy that dies
+ out does not come back.
+ The matches of a generation are played in parallel on a ForkJoinPool, in batches of BATCH matches, with the
+ seeded random generators and payoffs of the Tournament; payoffs are added up in LongAdders as whole micro-points,
+ so the same seed gives the same populations whatever the number of threads.
+ The number of individuals of every strategy is written to a binary file after every generation, little-endian:
+    int     MAGIC ("RPDY")
+    int     VERSION
+    int     number of strategies S, population size
+    S x (int length, byte[] UTF-8 name of the strategy)
+ followed by one frame per generation (generation 0 being the initial population):
+    int     generation
+    float   mean payoff per round of the population in the generation before (0 for generation 0)
+    int[S]  the number of individuals of each strategy
+ e.g. in numpy, after the header: np.fromfile(f, dtype=[('g', '<i4'), ('payoff', '<f4'), ('counts', '<i4', S)])
+ Usage: java Evolution [--population=N] [--generations=N] [--matches=N] [--rounds=N] [--seed=N] [--threads=N]
+                       [--print-every=N] [--output=evolution.bin]
+ */
+public class Evolution {
+    public static final int MAGIC = 0x52504459;
+    public static final int VERSION = 1;
+    // matches played by one ForkJoin task without splitting it further
+    private static final int BATCH = 64;
+    // payoffs are accumulated in millionths of a point
+    private static final double MICRO = 1e6;
+
+    private final List<String> names;
+    private final List<Supplier<Player>> factories;
+    private final int matchesPerIndividual, minRounds;
+    private final long seed;
+    private final ForkJoinPool pool;
+    // number of individuals of each strategy
+    private final int[] counts;
+    private final int population;
+
+    public Evolution(Map<String, Supplier<Player>> players, int population, int matchesPerIndividual, int minRounds,
+                     long seed, ForkJoinPool pool) {
+        if (population < 3)
+            throw new IllegalArgumentException("Population " + population + " must be at least 3.");
+
+        this.names = new ArrayList<String>(players.keySet());
+        this.factories = new ArrayList<Supplier<Player>>(players.values());
+        this.matchesPerIndividual = matchesPerIndividual;
+        this.minRounds = minRounds;
+        this.seed = seed;
+        this.pool = pool;
+        this.population = population;
+
+        // equal shares to start with, the first strategies taking the remainder
+        this.counts = new int[names.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = population / counts.length + (i < population % counts.length ? 1 : 0);
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = Tournament.parseOptions(args);
+        int population = Integer.parseInt(options.getOrDefault("population", "1000"));
+        int generations = Integer.parseInt(options.getOrDefault("generations", "200"));
+        int matches = Integer.parseInt(options.getOrDefault("matches", "3"));
+        int minRounds = Integer.parseInt(options.getOrDefault("rounds", Integer.toString(Tournament.MIN_ROUNDS)));
+        long seed = Long.parseLong(options.getOrDefault("seed", "4046"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int printEvery = Integer.parseInt(options.getOrDefault("print-every", "10"));
+        String output = options.getOrDefault("output", "evolution.bin");
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        Evolution evolution = new Evolution(Tournament.PLAYERS, population, matches, minRounds, seed, pool);
+        long start = System.nanoTime();
+        try {
+            evolution.run(generations, Paths.get(output).toAbsolutePath().toString(), printEvery);
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("\n%d generations of %d individuals in %.3f s, shares written to %s\n", generations,
+                population, (System.nanoTime() - start) / 1e9, output);
+    }
+
+    /**
+     run(int generations, String fileName, int printEvery): runs the given number of generations, writing the
+     population of every generation to the file and printing the shares of the strategies every printEvery
+     generations (and for the first and last).
+     */
+    public void run(int generations, String fileName, int printEvery) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            writeHeader(channel, buffer);
+
+            printHeader();
+            writeFrame(channel, buffer, 0, 0);
+            printShares(0, 0);
+            for (int generation = 1; generation <= generations; generation++) {
+                double meanPayoff = nextGeneration(generation);
+                writeFrame(channel, buffer, generation, meanPayoff);
+                if (generation % printEvery == 0 || generation == generations)
+                    printShares(generation, meanPayoff);
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     nextGeneration(int generation): plays the matches of a generation and replaces the population with the next
+     one, returning the mean payoff per round of the population.
+     */
+    double nextGeneration(int generation) {
+        // the shuffles are seeded with negative numbers, the matches of the generation with positive ones
+        SplittableRandom random = new SplittableRandom(Tournament.matchSeed(seed, -generation));
+
+        // the strategy of every individual, shuffled and cut into groups of three once per match of an individual;
+        // if the population is not a multiple of three, the last group is completed from the start of the order
+        int matchesPerRound = (population + 2) / 3;
+        int[] strategies = new int[matchesPerRound * 3 * matchesPerIndividual];
+        int[] individuals = new int[population];
+        for (int i = 0, n = 0; i < counts.length; i++) {
+            for (int c = 0; c < counts[i]; c++) {
+                individuals[n++] = i;
+            }
+        }
+        for (int round = 0; round < matchesPerIndividual; round++) {
+            // Fisher-Yates shuffle
+            for (int i = population - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = individuals[i];
+                individuals[i] = individuals[j];
+                individuals[j] = swap;
+            }
+            for (int slot = 0; slot < matchesPerRound * 3; slot++) {
+                strategies[round * matchesPerRound * 3 + slot] = individuals[slot % population];
+            }
+        }
+
+        LongAdder[] microPayoffs = Tournament.newAdders(counts.length);
+        LongAdder[] appearances = Tournament.newAdders(counts.length);
+        long generationSeed = Tournament.matchSeed(seed, generation);
+        pool.invoke(new Matches(strategies, generationSeed, microPayoffs, appearances, 0, strategies.length / 3));
+
+        // replicator update: the weight of a strategy is its number of individuals times its mean payoff
+        double[] weights = new double[counts.length];
+        double totalWeight = 0, totalPayoff = 0;
+        long totalAppearances = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long played = appearances[i].sum();
+            if (played == 0)
+                continue;
+            double payoff = microPayoffs[i].sum() / MICRO / played;
+            weights[i] = counts[i] * payoff;
+            totalWeight += weights[i];
+            totalPayoff += microPayoffs[i].sum() / MICRO;
+            totalAppearances += played;
+        }
+        if (totalWeight > 0)
+            apportion(weights, totalWeight);
+
+        return totalPayoff / totalAppearances;
+    }
+
+    // sets the counts to population * weight / totalWeight, rounded by largest remainder
+    private void apportion(double[] weights, double totalWeight) {
+        double[] remainders = new double[counts.length];
+        int assigned = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double exact = population * weights[i] / totalWeight;
+            counts[i] = (int) exact;
+            remainders[i] = exact - counts[i];
+            assigned += counts[i];
+        }
+        for (; assigned < population; assigned++) {
+            int largest = 0;
+            for (int i = 1; i < counts.length; i++) {
+                if (remainders[i] > remainders[largest])
+                    largest = i;
+            }
+            counts[largest]++;
+            remainders[largest] = -1;
+        }
+    }
+
+    /**
+     Matches plays the matches numbered from to to - 1 of a generation: match m is between the strategies
+     strategies[3m], strategies[3m + 1] and strategies[3m + 2], with the generator seeded with
+     Tournament.matchSeed(generationSeed, m).
+     */
+    private class Matches extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] strategies;
+        private final long generationSeed;
+        private final LongAdder[] microPayoffs, appearances;
+        private final int from, to;
+
+        private Matches(int[] strategies, long generationSeed, LongAdder[] microPayoffs, LongAdder[] appearances,
+                        int from, int to) {
+            this.strategies = strategies;
+            this.generationSeed = generationSeed;
+            this.microPayoffs = microPayoffs;
+            this.appearances = appearances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Matches(strategies, generationSeed, microPayoffs, appearances, from, middle),
+                        new Matches(strategies, generationSeed, microPayoffs, appearances, middle, to));
+                return;
+            }
+
+            Player[] players = new Player[3];
+            int[] points = new int[3];
+            for (int match = from; match < to; match++) {
+                for (int p = 0; p < 3; p++) {
+                    players[p] = factories.get(strategies[3 * match + p]).get();
+                }
+                int rounds = Tournament.playMatch(players, minRounds,
+                        new SplittableRandom(Tournament.matchSeed(generationSeed, match)), points);
+                for (int p = 0; p < 3; p++) {
+                    microPayoffs[strategies[3 * match + p]].add(Math.round(MICRO * points[p] / rounds));
+                    appearances[strategies[3 * match + p]].increment();
+                }
+            }
+        }
+    }
+
+    private void writeHeader(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(names.size()).putInt(population);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private void writeFrame(FileChannel channel, ByteBuffer buffer, int generation, double meanPayoff)
+            throws IOException {
+        if (buffer.remaining() < 8 + 4 * counts.length) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        buffer.putInt(generation).putFloat((float) meanPayoff);
+        for (int count : counts) {
+            buffer.putInt(count);
+        }
+    }
+
+    private void printHeader() {
+        System.out.printf("%-10s %-8s", "Generation", "Payoff");
+        for (String name : names) {
+            System.out.printf(" %" + Math.max(8, name.length()) + "s", name);
+        }
+        System.out.println();
+    }
+
+    private void printShares(int generation, double meanPayoff) {
+        System.out.printf("%-10d %-8.4f", generation, meanPayoff);
+        for (int i = 0; i < counts.length; i++) {
+            System.out.printf(" %" + (Math.max(8, names.get(i).length()) - 1) + ".2f%%", 100.0 * counts[i] / population);
+        }
+        System.out.println();
+    }
+
+    int[] getCounts() {
+        return counts;
+    }
+}
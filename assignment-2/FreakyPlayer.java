@@ -0,0 +1,17 @@
+/**
+ FreakyPlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ chooses to always cooperate or always defect, with equal probability, in the first round.
+ */
+class FreakyPlayer extends Player {
+    int action;
+
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        if (n == 0)
+            action = random.nextDouble() < 0.5 ? 0 : 1;
+        return action;
+    }
+
+    int selectAction(PlayerContext context) {
+        return selectAction(context.getRound(), null, null, null);
+    }
+}
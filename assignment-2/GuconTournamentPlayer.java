@@ -0,0 +1,21 @@
+/**
+ GuconTournamentPlayer is Gucon_Nailah_Player as the Tournament plays it. Gucon_Nailah_Player only uses what the
+ ThreePrisonersDilemma harness provides, so that it can still be pasted into the harness unchanged; this subclass adds
+ the fast path of the Tournament, which makes the same decision from the running counts and packed histories of the
+ PlayerContext instead of counting the int[] histories every round, and draws its random numbers from the seeded
+ generator of the match rather than from Math.random(), so that tournaments are reproducible.
+ */
+class GuconTournamentPlayer extends Gucon_Nailah_Player {
+    int selectAction(PlayerContext context) {
+        int n = context.getRound();
+        History opp1 = context.getOpponent1(), opp2 = context.getOpponent2();
+
+        return decide(n, opp1.getDefections(), opp2.getDefections(), opp1.getCooperations(), opp2.getCooperations(),
+                n > 10 ? opp1.getLastAction(1) : 0, n > 10 ? opp2.getLastAction(1) : 0,
+                n > 10 ? opp1.getLastAction(2) : 0, n > 10 ? opp2.getLastAction(2) : 0);
+    }
+
+    double nextRandom() {
+        return random.nextDouble();
+    }
+}
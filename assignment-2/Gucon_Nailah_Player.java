@@ -10,6 +10,19 @@ class Gucon_Nailah_Player extends Player {
             else oppCooperations2++;
         }
 
+        // The actions of both opponents in the last two rounds, which are only looked at after round 10
+        int oppLast1 = n > 10 ? oppHistory1[n - 1] : 0, oppLast2 = n > 10 ? oppHistory2[n - 1] : 0;
+        int oppBeforeLast1 = n > 10 ? oppHistory1[n - 2] : 0, oppBeforeLast2 = n > 10 ? oppHistory2[n - 2] : 0;
+
+        return decide(n, oppDefections1, oppDefections2, oppCooperations1, oppCooperations2,
+                oppLast1, oppLast2, oppBeforeLast1, oppBeforeLast2);
+    }
+
+    // Decides from the counts and last actions of the opponents; GuconTournamentPlayer calls it with the counts the
+    // Tournament keeps, so the decision is made in one place
+    int decide(int n, int oppDefections1, int oppDefections2, int oppCooperations1, int oppCooperations2,
+               int oppLast1, int oppLast2, int oppBeforeLast1, int oppBeforeLast2) {
+
         // Calculate the cooperation ratio of the opponents
         double oppCooperationRatio1 = 1.0 * oppCooperations1 / (oppCooperations1 + oppDefections1);
         double oppCooperationRatio2 = 1.0 * oppCooperations2 / (oppCooperations2 + oppDefections2);
@@ -23,7 +36,7 @@ class Gucon_Nailah_Player extends Player {
                 return 0;
             } else {
                 // cooperate with a 90% probability and defect with a 10% probability
-                return Math.random() < 0.9 ? 0 : 1;
+                return nextRandom() < 0.9 ? 0 : 1;
             }
         } else {
             // calculate defect rate of both opponents
@@ -41,9 +54,9 @@ class Gucon_Nailah_Player extends Player {
             }
 
             // Check if both opponents have cooperated in the last round
-            if (oppHistory1[n - 1] == 0 && oppHistory2[n - 1] == 0) {
+            if (oppLast1 == 0 && oppLast2 == 0) {
                 // Check if an opponent has defected in the round before that
-                if (oppHistory1[n - 2] == 1 || oppHistory2[n - 2] == 1) {
+                if (oppBeforeLast1 == 1 || oppBeforeLast2 == 1) {
                     // Defect in response to recent defection
                     return 1;
                 } else {
@@ -56,4 +69,10 @@ class Gucon_Nailah_Player extends Player {
             }
         }
     }
+
+    // A random number in [0, 1), from Math.random() as in the harness; GuconTournamentPlayer draws it from the
+    // seeded generator of the match instead
+    double nextRandom() {
+        return Math.random();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+/**
+ History is the sequence of actions (0 = cooperate, 1 = defect) one player has taken in a match so far, packed one
+ bit per round into long words: round n is bit n % 64 of words[n / 64]. A 10000-round match takes 157 words instead
+ of the 10000 ints of the harness's int[] histories.
+ The number of defections is kept as every round is recorded, so getDefections() is O(1); the number of defections
+ in any window of rounds is counted with Long.bitCount, 64 rounds at a time, and the actions of the last k rounds
+ (k <= 64) can be read as one long, to compare with a pattern.
+ For strategies written against the int[] histories of the harness, getActions() unpacks the rounds recorded since
+ it was last called into an int[], which is only allocated if a strategy asks for it.
+ */
+final class History {
+    private final long[] words;
+    private int rounds;
+    private int defections;
+    // the actions unpacked by getActions(), and the number of rounds unpacked so far
+    private int[] actions;
+    private int unpacked;
+
+    // a history with room for the given number of rounds
+    History(int capacity) {
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    // appends the action of the next round
+    void record(int action) {
+        words[rounds >>> 6] |= (long) action << rounds;
+        defections += action;
+        rounds++;
+    }
+
+    int getRounds() {
+        return rounds;
+    }
+
+    // the action taken in the given round (counting from 0)
+    int getAction(int round) {
+        return (int) (words[round >>> 6] >>> round) & 1;
+    }
+
+    // the action taken k rounds ago (k = 1 is the last round)
+    int getLastAction(int k) {
+        return getAction(rounds - k);
+    }
+
+    int getDefections() {
+        return defections;
+    }
+
+    int getCooperations() {
+        return rounds - defections;
+    }
+
+    // the fraction of rounds so far in which the player defected, or 0 before the first round
+    double getDefectRate() {
+        return rounds == 0 ? 0 : 1.0 * defections / rounds;
+    }
+
+    /**
+     getDefections(int from, int to): the number of defections in rounds from to to - 1.
+     */
+    int getDefections(int from, int to) {
+        if (from >= to)
+            return 0;
+        int first = from >>> 6, last = (to - 1) >>> 6;
+        // the bits of the first word from bit from % 64 on, and of the last word up to bit (to - 1) % 64
+        long firstMask = -1L << from, lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (first == last)
+            return Long.bitCount(words[first] & firstMask & lastMask);
+
+        int count = Long.bitCount(words[first] & firstMask) + Long.bitCount(words[last] & lastMask);
+        for (int w = first + 1; w < last; w++) {
+            count += Long.bitCount(words[w]);
+        }
+        return count;
+    }
+
+    // the number of defections in the last k rounds (or in all rounds, if there have been fewer than k)
+    int getDefectionsInLast(int k) {
+        return getDefections(Math.max(0, rounds - k), rounds);
+    }
+
+    /**
+     getLastActions(int k): the actions of the last k rounds (1 <= k <= 64, and at least k rounds played), as the
+     lowest k bits of a long: bit 0 is the action of the last round, bit 1 that of the round before, and so on.
+     e.g. getLastActions(3) == 0b001 if the player defected in the last round after cooperating twice.
+     */
+    long getLastActions(int k) {
+        int from = rounds - k;
+        int word = from >>> 6, shift = from & 63;
+        // bits from to rounds - 1, oldest first, which may run on into the next word
+        long bits = words[word] >>> shift;
+        if (shift + k > 64)
+            bits |= words[word + 1] << (64 - shift);
+        bits &= k == 64 ? -1L : (1L << k) - 1;
+        // newest first
+        return Long.reverse(bits) >>> (64 - k);
+    }
+
+    /**
+     getActions(): the actions as the int[] the harness passes to Player.selectAction; only the first getRounds()
+     entries are set. The array is the same on every call, and is only updated with the rounds recorded since the
+     last call, so an int[] strategy costs O(1) per round as well.
+     */
+    int[] getActions() {
+        if (actions == null)
+            actions = new int[words.length << 6];
+        for (; unpacked < rounds; unpacked++) {
+            actions[unpacked] = getAction(unpacked);
+        }
+        return actions;
+    }
+}
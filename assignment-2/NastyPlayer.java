@@ -0,0 +1,13 @@
+/**
+ NastyPlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ always defects.
+ */
+class NastyPlayer extends Player {
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        return 1;
+    }
+
+    int selectAction(PlayerContext context) {
+        return 1;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ NicePlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ always cooperates.
+ */
+class NicePlayer extends Player {
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        return 0;
+    }
+
+    int selectAction(PlayerContext context) {
+        return 0;
+    }
+}
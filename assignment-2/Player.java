@@ -0,0 +1,24 @@
+import java.util.SplittableRandom;
+
+/**
+ Player is a strategy for the three-player repeated prisoner's dilemma, as in the ThreePrisonersDilemma harness of
+ the assignment: in round n (counting from 0), selectAction returns 0 to cooperate or 1 to defect, given the actions
+ of this player and of both opponents in rounds 0 to n - 1.
+ Strategies that act randomly draw from random instead of Math.random(). The Tournament gives every match its own
+ seeded generator, so that a tournament gives the same results however its matches are scheduled.
+ A new Player is made for every match, so a strategy can keep state in its fields.
+ The Tournament calls selectAction(PlayerContext), which unpacks the bit-packed histories (see History) into the
+ int[]s of the harness by default. Strategies can override it to read the packed histories and running counts of the
+ PlayerContext instead, so that a round costs O(1) rather than O(n) and no int[] is unpacked.
+ */
+abstract class Player {
+    // the random number generator of the current match, set by the Tournament before the first round
+    SplittableRandom random = new SplittableRandom();
+
+    abstract int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2);
+
+    int selectAction(PlayerContext context) {
+        return selectAction(context.getRound(), context.getMyHistory().getActions(),
+                context.getOpponent1().getActions(), context.getOpponent2().getActions());
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ PlayerContext is what one player sees of a match: its own History and those of its two opponents, in the same
+ order as the arguments of Player.selectAction. The Tournament records every round in the three histories once,
+ and the contexts of the three players share them.
+ */
+final class PlayerContext {
+    private final History me, opponent1, opponent2;
+
+    PlayerContext(History me, History opponent1, History opponent2) {
+        this.me = me;
+        this.opponent1 = opponent1;
+        this.opponent2 = opponent2;
+    }
+
+    // the number of the current round (counting from 0), i.e. the number of rounds played so far
+    int getRound() {
+        return me.getRounds();
+    }
+
+    History getMyHistory() {
+        return me;
+    }
+
+    History getOpponent1() {
+        return opponent1;
+    }
+
+    History getOpponent2() {
+        return opponent2;
+    }
+}
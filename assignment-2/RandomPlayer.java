@@ -0,0 +1,13 @@
+/**
+ RandomPlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ cooperates or defects with equal probability.
+ */
+class RandomPlayer extends Player {
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        return random.nextDouble() < 0.5 ? 0 : 1;
+    }
+
+    int selectAction(PlayerContext context) {
+        return random.nextDouble() < 0.5 ? 0 : 1;
+    }
+}
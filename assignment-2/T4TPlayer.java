@@ -0,0 +1,24 @@
+/**
+ T4TPlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ cooperates in the first round, then copies the last action of a randomly chosen opponent.
+ */
+class T4TPlayer extends Player {
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        if (n == 0)
+            return 0;
+        if (random.nextDouble() < 0.5)
+            return oppHistory1[n - 1];
+        else
+            return oppHistory2[n - 1];
+    }
+
+    // the same decision from the packed histories
+    int selectAction(PlayerContext context) {
+        if (context.getRound() == 0)
+            return 0;
+        if (random.nextDouble() < 0.5)
+            return context.getOpponent1().getLastAction(1);
+        else
+            return context.getOpponent2().getLastAction(1);
+    }
+}
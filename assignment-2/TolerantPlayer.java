@@ -0,0 +1,33 @@
+/**
+ TolerantPlayer is one of the sample strategies of the ThreePrisonersDilemma harness, to play against: it
+ defects if the opponents have defected more often than they have cooperated.
+ */
+class TolerantPlayer extends Player {
+    int selectAction(int n, int[] myHistory, int[] oppHistory1, int[] oppHistory2) {
+        int opponentCoop = 0;
+        int opponentDefect = 0;
+        for (int i = 0; i < n; i++) {
+            if (oppHistory1[i] == 0)
+                opponentCoop = opponentCoop + 1;
+            else
+                opponentDefect = opponentDefect + 1;
+        }
+        for (int i = 0; i < n; i++) {
+            if (oppHistory2[i] == 0)
+                opponentCoop = opponentCoop + 1;
+            else
+                opponentDefect = opponentDefect + 1;
+        }
+        if (opponentDefect > opponentCoop)
+            return 1;
+        else
+            return 0;
+    }
+
+    // the same decision from the running counts
+    int selectAction(PlayerContext context) {
+        int opponentDefect = context.getOpponent1().getDefections() + context.getOpponent2().getDefections();
+        int opponentCoop = context.getOpponent1().getCooperations() + context.getOpponent2().getCooperations();
+        return opponentDefect > opponentCoop ? 1 : 0;
+    }
+}
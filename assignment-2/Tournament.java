@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ Tournament plays the three-player repeated prisoner's dilemma between strategies, as the ThreePrisonersDilemma
+ harness does: every combination of three strategies (with repetition, i <= j <= k) plays a match of 90 to 110
+ rounds, and each of the three players scores its mean payoff per round. The score of a strategy is the sum of its
+ scores over all the matches it played.
+ The matches are independent, so they are played in parallel on a ForkJoinPool, in batches of BATCH matches.
+ Every match has its own SplittableRandom, seeded from the tournament seed and the number of the match only, which
+ chooses the number of rounds and is the random generator of the three players. Scores are added to LongAdders as
+ whole micro-points, so they add up to the same totals in any order: the same seed always gives the same results,
+ whatever the number of threads.
+ Usage: java Tournament [--seed=N] [--repeat=N] [--rounds=N] [--threads=N]
+    --seed=N      the seed of the tournament (default 4046)
+    --repeat=N    the number of times every combination of strategies is played (default 1)
+    --rounds=N    the fewest rounds of a match, which has up to ROUND_RANGE more (default 90, as in the harness)
+    --threads=N   the parallelism of the ForkJoinPool (default: the number of processors)
+ */
+public class Tournament {
+    // payoff[me][opponent1][opponent2] for each action (0 = cooperate, 1 = defect)
+    static final int[][][] PAYOFF = { { { 6, 3 }, { 3, 0 } }, { { 8, 5 }, { 5, 2 } } };
+    // a match has MIN_ROUNDS to MIN_ROUNDS + ROUND_RANGE rounds by default, as in the harness
+    static final int MIN_ROUNDS = 90;
+    static final int ROUND_RANGE = 20;
+    // scores are accumulated in millionths of a point
+    private static final double MICRO = 1e6;
+    // matches played by one ForkJoin task without splitting it further
+    private static final int BATCH = 64;
+
+    // the strategies of the tournament, by name, in the order of the harness
+    static final Map<String, Supplier<Player>> PLAYERS = new LinkedHashMap<String, Supplier<Player>>();
+    static {
+        PLAYERS.put("NicePlayer", NicePlayer::new);
+        PLAYERS.put("NastyPlayer", NastyPlayer::new);
+        PLAYERS.put("RandomPlayer", RandomPlayer::new);
+        PLAYERS.put("TolerantPlayer", TolerantPlayer::new);
+        PLAYERS.put("FreakyPlayer", FreakyPlayer::new);
+        PLAYERS.put("T4TPlayer", T4TPlayer::new);
+        PLAYERS.put("Gucon_Nailah_Player", GuconTournamentPlayer::new);
+    }
+
+    private final List<String> names;
+    private final List<Supplier<Player>> factories;
+    // every combination of three strategies, as indices into names
+    private final int[][] triples;
+    // per strategy: sum of the mean payoffs per round in micro-points, total payoff, rounds and matches played
+    private final LongAdder[] microScores, payoffs, rounds, matches;
+
+    public Tournament(Map<String, Supplier<Player>> players) {
+        this.names = new ArrayList<String>(players.keySet());
+        this.factories = new ArrayList<Supplier<Player>>(players.values());
+
+        int numPlayers = names.size();
+        List<int[]> triples = new ArrayList<int[]>();
+        for (int i = 0; i < numPlayers; i++) {
+            for (int j = i; j < numPlayers; j++) {
+                for (int k = j; k < numPlayers; k++) {
+                    triples.add(new int[] { i, j, k });
+                }
+            }
+        }
+        this.triples = triples.toArray(new int[0][]);
+
+        this.microScores = newAdders(numPlayers);
+        this.payoffs = newAdders(numPlayers);
+        this.rounds = newAdders(numPlayers);
+        this.matches = newAdders(numPlayers);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "4046"));
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+        int minRounds = Integer.parseInt(options.getOrDefault("rounds", Integer.toString(MIN_ROUNDS)));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        Tournament tournament = new Tournament(PLAYERS);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        long start = System.nanoTime();
+        long played = tournament.play(seed, repeat, minRounds, pool);
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        tournament.printRanking();
+        System.out.printf("\n%d matches on %d threads (seed %d) in %.3f ms, %.0f matches/s\n", played, threads, seed,
+                nanos / 1e6, played / (nanos / 1e9));
+    }
+
+    /**
+     play(long seed, int repeat, int minRounds, ForkJoinPool pool): plays every combination of three strategies repeat
+     times on the pool, in matches of minRounds to minRounds + ROUND_RANGE rounds, adding the results to those of
+     earlier calls, and returns the number of matches played.
+     */
+    public long play(long seed, int repeat, int minRounds, ForkJoinPool pool) {
+        long numMatches = (long) triples.length * repeat;
+        pool.invoke(new Matches(seed, minRounds, 0, numMatches));
+        return numMatches;
+    }
+
+    /**
+     Matches plays the matches numbered from to to - 1: match m is the (m % triples.length)th combination of
+     strategies, and its random generator is seeded with matchSeed(seed, m).
+     */
+    private class Matches extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed, from, to;
+        private final int minRounds;
+
+        private Matches(long seed, int minRounds, long from, long to) {
+            this.seed = seed;
+            this.minRounds = minRounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Matches(seed, minRounds, from, middle), new Matches(seed, minRounds, middle, to));
+                return;
+            }
+
+            Player[] players = new Player[3];
+            int[] points = new int[3];
+            for (long match = from; match < to; match++) {
+                int[] triple = triples[(int) (match % triples.length)];
+                for (int p = 0; p < 3; p++) {
+                    players[p] = factories.get(triple[p]).get();
+                }
+
+                int matchRounds = playMatch(players, minRounds, new SplittableRandom(matchSeed(seed, match)), points);
+                for (int p = 0; p < 3; p++) {
+                    microScores[triple[p]].add(Math.round(MICRO * points[p] / matchRounds));
+                    payoffs[triple[p]].add(points[p]);
+                    rounds[triple[p]].add(matchRounds);
+                    matches[triple[p]].increment();
+                }
+            }
+        }
+    }
+
+    /**
+     playMatch(Player[] players, int minRounds, SplittableRandom random, int[] points): plays one match between three
+     players, with minRounds to minRounds + ROUND_RANGE rounds chosen by random, which is also the random generator
+     of the players. The total payoff of each player is stored in points, and the number of rounds is returned.
+     Every round is recorded once in the History of each player, and each player sees its own history first and the
+     other two in the same order as in the harness, through its PlayerContext.
+     */
+    static int playMatch(Player[] players, int minRounds, SplittableRandom random, int[] points) {
+        int numRounds = minRounds + (int) Math.rint(ROUND_RANGE * random.nextDouble());
+        History historyA = new History(numRounds), historyB = new History(numRounds), historyC = new History(numRounds);
+        PlayerContext contextA = new PlayerContext(historyA, historyB, historyC);
+        PlayerContext contextB = new PlayerContext(historyB, historyC, historyA);
+        PlayerContext contextC = new PlayerContext(historyC, historyA, historyB);
+        Arrays.fill(points, 0);
+        for (Player player : players) {
+            player.random = random;
+        }
+
+        for (int n = 0; n < numRounds; n++) {
+            int actionA = players[0].selectAction(contextA);
+            int actionB = players[1].selectAction(contextB);
+            int actionC = players[2].selectAction(contextC);
+            points[0] += PAYOFF[actionA][actionB][actionC];
+            points[1] += PAYOFF[actionB][actionC][actionA];
+            points[2] += PAYOFF[actionC][actionA][actionB];
+            historyA.record(actionA);
+            historyB.record(actionB);
+            historyC.record(actionC);
+        }
+        return numRounds;
+    }
+
+    /**
+     matchSeed(long seed, long match): the seed of the random generator of a match, a hash (SplitMix64) of the
+     tournament seed and the number of the match, so that matches played in any order get the same generators.
+     */
+    static long matchSeed(long seed, long match) {
+        long z = seed + (match + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     printRanking(): prints the strategies from the highest score to the lowest, with their mean payoff per round
+     over all their matches.
+     */
+    public void printRanking() {
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(microScores[b].sum(), microScores[a].sum()));
+
+        System.out.printf("%-5s %-22s %14s %12s %10s\n", "Rank", "Player", "Score", "Per round", "Matches");
+        for (int rank = 0; rank < order.length; rank++) {
+            int player = order[rank];
+            System.out.printf("%-5d %-22s %14.3f %12.4f %10d\n", rank + 1, names.get(player),
+                    microScores[player].sum() / MICRO, (double) payoffs[player].sum() / rounds[player].sum(),
+                    matches[player].sum());
+        }
+    }
+
+    public double getScore(int player) {
+        return microScores[player].sum() / MICRO;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    // n new LongAdders, also used by Evolution
+    static LongAdder[] newAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // parses leading "--name=value" arguments
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--"))
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            int equals = arg.indexOf('=');
+            if (equals < 0)
+                options.put(arg.substring(2), "true");
+            else
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}